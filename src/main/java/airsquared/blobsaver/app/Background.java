@@ -26,6 +26,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 class Background {
 
@@ -273,15 +274,43 @@ class Background {
     }
 
     public static void saveAllBackgroundBlobs() {
-        Prefs.getBackgroundDevices().forEach(savedDevice -> {
-            System.out.println("attempting to save for device " + savedDevice);
+        List<Prefs.SavedDevice> savedDevices = Prefs.getBackgroundDevices().toList();
+        System.out.println("attempting to save for devices " + savedDevices);
 
-            saveBlobs(savedDevice);
-        });
+        List<TSSBatch.Result> results;
+        try {
+            var signingMatrix = SigningMatrix.refresh(savedDevices);
+            // each device saves one version at a time, so this limits the blobs requested at once like it does for one device
+            results = TSSBatch.saveAll(savedDevices.stream().map(Background::createTSSBuilder).toList(),
+                    Prefs.getMaxParallelSaves(), signingMatrix);
+        } catch (InterruptedException e) {
+            System.err.println("Saving background blobs was interrupted");
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            if (result.error() != null) {
+                System.err.println("Failed to save blobs for device " + savedDevices.get(i));
+                result.error().printStackTrace();
+            } else {
+                System.out.println("Saved blobs for device " + savedDevices.get(i) + ":\n" + result.message());
+            }
+        }
         System.out.println("Done saving all background blobs");
     }
 
     public static void saveBlobs(Prefs.SavedDevice savedDevice) {
+        try {
+            createTSSBuilder(savedDevice).build().call();
+            // TODO: show a notification
+        } catch (Throwable t) {
+            t.printStackTrace();
+            // TODO: log it or show a notification
+        }
+    }
+
+    private static TSS.Builder createTSSBuilder(Prefs.SavedDevice savedDevice) {
         TSS.Builder builder = new TSS.Builder().setName(savedDevice.getName())
                 .setDevice(savedDevice.getIdentifier())
                 .setEcid(savedDevice.getEcid()).setSavePath(savedDevice.getSavePath())
@@ -289,14 +318,7 @@ class Background {
         savedDevice.getBoardConfig().ifPresent(builder::setBoardConfig);
         savedDevice.getApnonce().ifPresent(builder::setApnonce);
         savedDevice.getGenerator().ifPresent(builder::setGenerator);
-
-        try {
-            builder.build().call();
-            // TODO: show a notification
-        } catch (Throwable t) {
-            t.printStackTrace();
-            // TODO: log it or show a notification
-        }
+        return builder;
     }
 
 }
\ No newline at end of file
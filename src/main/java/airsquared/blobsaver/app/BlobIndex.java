@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * In-memory index of the blobs in a save directory, so that checking whether a blob was already saved does not need
+ * to touch the file system.
+ * <p>
+ * Each directory is scanned once, and then kept up to date with a {@link WatchService}. If the directory can't be
+ * watched (e.g. on some network file systems), blobs saved by this process are still added with {@link #add(Key)}.
+ * Keys are compared exactly, so a lookup that misses falls back to the file system, and a blob found that way is
+ * remembered until a blob is deleted from the directory.
+ */
+final class BlobIndex {
+
+    /**
+     * The information stored in a blob's file name by tsschecker
+     */
+    record Key(long ecid, String deviceIdentifier, String boardConfig, String version, String buildid, String apnonce) {
+
+        // https://github.com/1Conan/tsschecker/blob/0bc6174c3c2f77a0de525b71e7d8ec0987f07aa1/tsschecker/tsschecker.c#L1262
+        String fileName() {
+            return ecid + "_" + deviceIdentifier + "_" + boardConfig + "_" + version + "-" + buildid + "_" + apnonce + ".shsh2";
+        }
+
+        /**
+         * @return the key, or null if the file name is not in the format tsschecker uses
+         */
+        static Key parse(String fileName) {
+            if (!fileName.endsWith(".shsh2")) {
+                return null;
+            }
+            String[] parts = fileName.substring(0, fileName.length() - ".shsh2".length()).split("_");
+            if (parts.length != 5) {
+                return null;
+            }
+            int dash = parts[3].indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                return new Key(Long.parseUnsignedLong(parts[0]), parts[1], parts[2],
+                        parts[3].substring(0, dash), parts[3].substring(dash + 1), parts[4]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final Map<Path, BlobIndex> indexes = new ConcurrentHashMap<>();
+    private static WatchService watchService;
+
+    private final Path directory;
+    private final Set<Key> keys = ConcurrentHashMap.newKeySet();
+    /**
+     * Keys that were only found on the file system, e.g. in a different case. They aren't in {@link #keys} because the
+     * watcher reports the file's actual name when it is deleted.
+     */
+    private final Set<Key> found = ConcurrentHashMap.newKeySet();
+
+    private BlobIndex(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the index for the directory, scanning it if it hasn't been indexed yet
+     */
+    static BlobIndex of(Path directory) {
+        directory = directory.toAbsolutePath().normalize();
+        var existing = indexes.get(directory);
+        if (existing != null) {
+            return existing;
+        }
+        var index = new BlobIndex(directory);
+        if (!Files.isDirectory(directory)) {
+            return index; // nothing saved yet; don't cache, since the directory will be created when saving
+        }
+        existing = indexes.putIfAbsent(directory, index);
+        if (existing != null) {
+            return existing;
+        }
+        index.watch(); // start watching before scanning so that no changes are missed
+        index.scan();
+        return index;
+    }
+
+    /**
+     * Checks the file system on a miss, so that file names that only differ in case are found like before on
+     * case-insensitive file systems. Blobs that aren't saved yet are about to be requested anyway.
+     */
+    boolean contains(Key key) {
+        return keys.contains(key) || found.contains(key)
+                || (Files.exists(directory.resolve(key.fileName())) && found.add(key));
+    }
+
+    void add(Key key) {
+        keys.add(key);
+    }
+
+    private void scan() {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> Key.parse(file.getFileName().toString())).filter(Objects::nonNull).forEach(keys::add);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void watch() {
+        try {
+            directory.register(getWatchService(), ENTRY_CREATE, ENTRY_DELETE);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Unable to watch " + directory + " for changes: " + e);
+        }
+    }
+
+    private static synchronized WatchService getWatchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            Utils.executeInThreadPool(BlobIndex::processEvents);
+        }
+        return watchService;
+    }
+
+    private static void processEvents() {
+        try {
+            while (true) {
+                WatchKey watchKey = watchService.take();
+                var index = indexes.get((Path) watchKey.watchable());
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (index == null) {
+                        continue;
+                    }
+                    if (event.kind() == OVERFLOW) {
+                        index.found.clear();
+                        index.keys.clear();
+                        index.scan();
+                    } else if (Key.parse(event.context().toString()) instanceof Key key) {
+                        if (event.kind() == ENTRY_CREATE) {
+                            index.keys.add(key);
+                        } else {
+                            index.found.clear();
+                            index.keys.remove(key);
+                        }
+                    }
+                }
+                if (!watchKey.reset() && index != null) { // directory was deleted
+                    indexes.remove(index.directory);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+}
@@ -28,6 +28,8 @@ import picocli.CommandLine.Model.OptionSpec;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Base64;
 import java.util.HashSet;
 import java.util.Scanner;
@@ -96,6 +98,22 @@ public class CLI implements Callable<Void> {
                     "$${DeviceIdentifier}, $${BoardConfig}, $${APNonce}, $${Generator}, $${DeviceModel}, $${ECID}, $${FullVersionString}, $${BuildID}, $${MajorVersion} and $${Name} (if using a saved device).")
     File savePath;
 
+    @Option(names = "--max-parallel", paramLabel = "<count>",
+            description = "Maximum number of blobs to request at once. Saved for later runs, including background saving.")
+    Integer maxParallel;
+
+    @Option(names = "--tss-engine", paramLabel = "<engine>",
+            description = "Either TSSCHECKER or BUILTIN, which requests blobs without starting tsschecker. Saved for later runs, including background saving.")
+    TSS.Engine tssEngine;
+
+    @Option(names = "--firmware-catalog", paramLabel = "<path>",
+            description = "Directory of <identifier>.json files in the ipsw.me format to also read signed versions from. Saved for later runs; use '' to stop using it.")
+    String localFirmwareCatalog;
+
+    @Option(names = "--ipsw-library", paramLabel = "<path>",
+            description = "Directory of IPSWs and build manifests to read build manifests from instead of downloading them. Saved for later runs; use '' to stop using it.")
+    String ipswLibrary;
+
     @ArgGroup
     Version version = new Version();
     static class Version {
@@ -116,6 +134,25 @@ public class CLI implements Callable<Void> {
             Prefs.importXML(importPath);
             System.out.println(success("Successfully imported saved devices."));
         }
+        if (localFirmwareCatalog != null) {
+            Prefs.setLocalFirmwareCatalog(directoryOption(localFirmwareCatalog));
+            System.out.println("Local firmware catalog: " + Prefs.getLocalFirmwareCatalog().map(Path::toString).orElse("none"));
+        }
+        if (ipswLibrary != null) {
+            Prefs.setIPSWLibrary(directoryOption(ipswLibrary));
+            System.out.println("IPSW library: " + Prefs.getIPSWLibrary().map(Path::toString).orElse("none"));
+        }
+        if (maxParallel != null) {
+            if (maxParallel < 1) {
+                throw new ParameterException(spec.commandLine(), "--max-parallel must be at least 1");
+            }
+            Prefs.setMaxParallelSaves(maxParallel);
+            System.out.println("Max parallel saves: " + maxParallel);
+        }
+        if (tssEngine != null) {
+            Prefs.setTSSEngine(tssEngine);
+            System.out.println("TSS engine: " + tssEngine);
+        }
         if (saveBlobs) {
             checkArgs("identifier", "ecid", "save-path");
             var tss = new TSS.Builder()
@@ -265,6 +302,20 @@ public class CLI implements Callable<Void> {
         return Help.Ansi.AUTO.string("@|bold,green " + s + "|@");
     }
 
+    /**
+     * @return the directory, or null if {@code path} is empty
+     */
+    private Path directoryOption(String path) {
+        if (path.isEmpty()) {
+            return null;
+        }
+        var directory = Path.of(path).toAbsolutePath().normalize();
+        if (!Files.isDirectory(directory)) {
+            throw new ParameterException(spec.commandLine(), "Not a directory: " + directory);
+        }
+        return directory;
+    }
+
     private void checkArgs(String... names) {
         var missing = new HashSet<ArgSpec>();
         for (String name : names) {
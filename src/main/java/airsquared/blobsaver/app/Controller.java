@@ -38,12 +38,17 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Locale;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @SuppressWarnings("TextBlockMigration")
 public class Controller {
@@ -52,6 +57,7 @@ public class Controller {
     @FXML private MenuBar menuBar;
     @FXML private MenuItem checkForUpdatesMenu, clearAllDataMenu, deleteDeviceMenu, backgroundSettingsMenu;
     @FXML private RadioMenuItem darkDisabled, darkSync, darkEnabled;
+    @FXML private CheckMenuItem builtinTSSMenu;
 
     @FXML private ChoiceBox<String> deviceTypeChoiceBox, deviceModelChoiceBox;
 
@@ -108,6 +114,7 @@ public class Controller {
             case SYNC_WITH_OS -> darkSync.setSelected(true);
             case ENABLED -> darkEnabled.setSelected(true);
         }
+        builtinTSSMenu.setSelected(Prefs.getTSSEngine() == TSS.Engine.BUILTIN);
     }
 
     public void newGithubIssue() { Utils.newGithubIssue(); }
@@ -318,6 +325,43 @@ public class Controller {
         Prefs.setAlwaysSaveNewBlobs(((CheckMenuItem) evt.getSource()).isSelected());
     }
 
+    public void builtinTSSHandler(Event evt) {
+        Prefs.setTSSEngine(((CheckMenuItem) evt.getSource()).isSelected() ? TSS.Engine.BUILTIN : TSS.Engine.TSSCHECKER);
+    }
+
+    public void localFirmwareCatalogHandler() {
+        chooseDirectory("Local Firmware Catalog",
+                "Signed versions are also read from the <identifier>.json files in this folder, which use the same format as ipsw.me.",
+                Prefs.getLocalFirmwareCatalog(), Prefs::setLocalFirmwareCatalog);
+    }
+
+    public void ipswLibraryHandler() {
+        chooseDirectory("IPSW Library",
+                "Build manifests are read from the IPSWs and build manifests in this folder instead of being downloaded, when it has the version being saved.",
+                Prefs.getIPSWLibrary(), Prefs::setIPSWLibrary);
+    }
+
+    private static void chooseDirectory(String title, String description, Optional<Path> current, Consumer<Path> setter) {
+        ButtonType choose = new ButtonType("Choose Folder...");
+        ButtonType remove = new ButtonType("Don't Use a Folder");
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+                description + "\n\nCurrent folder: " + current.map(Path::toString).orElse("None"), choose, remove, ButtonType.CANCEL);
+        alert.setTitle(title);
+        alert.setHeaderText(title);
+        alert.showAndWait();
+        if (choose.equals(alert.getResult())) {
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle(title);
+            current.filter(Files::isDirectory).ifPresent(directory -> chooser.setInitialDirectory(directory.toFile()));
+            File directory = chooser.showDialog(Main.primaryStage);
+            if (directory != null) {
+                setter.accept(directory.toPath());
+            }
+        } else if (remove.equals(alert.getResult())) {
+            setter.accept(null);
+        }
+    }
+
     public void checkBlobs() {
         Utils.openURL("https://verify.shsh.host");
         Analytics.checkBlobs();
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A source of the firmware versions available for a device.
+ */
+interface FirmwareCatalogProvider {
+
+    /**
+     * @param signedOnly whether to leave out versions that aren't being signed
+     * @return the versions, in the order the provider lists them
+     */
+    List<Utils.IOSVersion> firmwares(String deviceIdentifier, boolean signedOnly) throws IOException;
+
+    /**
+     * @return ipsw.me, hedged with BetaHub and the local catalog if one is set in {@link Prefs#getLocalFirmwareCatalog()}
+     */
+    static FirmwareCatalogProvider standard() {
+        var providers = new ArrayList<FirmwareCatalogProvider>(List.of(new IPSWMe(), new BetaHub()));
+        Prefs.getLocalFirmwareCatalog().ifPresent(directory -> providers.add(new LocalFile(directory)));
+        return new Hedged(providers, Hedged.defaultDelay);
+    }
+
+    final class IPSWMe implements FirmwareCatalogProvider {
+        @Override
+        public List<Utils.IOSVersion> firmwares(String deviceIdentifier, boolean signedOnly) throws IOException {
+            try (var reader = Network.makeCachedJsonReaderRequest("https://api.ipsw.me/v4/device/" + deviceIdentifier)) {
+                return Utils.readFirmwares(reader, signedOnly);
+            }
+        }
+    }
+
+    final class BetaHub implements FirmwareCatalogProvider {
+        @Override
+        public List<Utils.IOSVersion> firmwares(String deviceIdentifier, boolean signedOnly) throws IOException {
+            var versions = Utils.getBetaHubList(deviceIdentifier, false);
+            return (signedOnly ? versions.filter(Utils.IOSVersion::signed) : versions).toList();
+        }
+    }
+
+    /**
+     * Reads {@code <identifier>.json} files in the ipsw.me format from a directory, for use without a connection
+     * or with a mirror.
+     */
+    final class LocalFile implements FirmwareCatalogProvider {
+        private final Path directory;
+
+        LocalFile(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public List<Utils.IOSVersion> firmwares(String deviceIdentifier, boolean signedOnly) throws IOException {
+            try (var reader = new JsonReader(Files.newBufferedReader(directory.resolve(deviceIdentifier + ".json")))) {
+                return Utils.readFirmwares(reader, signedOnly);
+            }
+        }
+    }
+
+    /**
+     * Asks the providers in order, but doesn't wait for a slow provider: if it hasn't answered within the delay, or
+     * if it failed, the next one is started as well. As soon as any provider returns a non-empty list, the answers of
+     * all providers that have finished by then are merged by build ID, preferring earlier providers, and the providers
+     * that haven't finished are interrupted.
+     */
+    final class Hedged implements FirmwareCatalogProvider {
+        static final Duration defaultDelay = Duration.ofSeconds(2);
+
+        private final List<FirmwareCatalogProvider> providers;
+        private final Duration delay;
+
+        Hedged(List<FirmwareCatalogProvider> providers, Duration delay) {
+            this.providers = List.copyOf(providers);
+            this.delay = delay;
+        }
+
+        @Override
+        public List<Utils.IOSVersion> firmwares(String deviceIdentifier, boolean signedOnly) throws IOException {
+            var answers = new ArrayList<CompletableFuture<List<Utils.IOSVersion>>>(providers.size());
+            var firstAnswer = new CompletableFuture<Void>();
+            try {
+                for (FirmwareCatalogProvider provider : providers) {
+                    var answer = start(() -> provider.firmwares(deviceIdentifier, signedOnly));
+                    answer.thenAccept(versions -> {
+                        if (!versions.isEmpty()) {
+                            firstAnswer.complete(null);
+                        }
+                    });
+                    answers.add(answer);
+                    try { // wait for an answer, or for all started providers to fail
+                        CompletableFuture.anyOf(firstAnswer, allDone(answers)).get(delay.toMillis(), TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        System.out.println("Catalog provider is slow for " + deviceIdentifier + "; starting the next one");
+                    }
+                    if (firstAnswer.isDone()) {
+                        break;
+                    }
+                }
+                CompletableFuture.anyOf(firstAnswer, allDone(answers)).get();
+                return merge(answers);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                throw new AssertionError(e); // neither future completes exceptionally
+            } finally { // don't keep a thread and a connection for an answer that won't be used
+                answers.forEach(answer -> answer.cancel(true));
+            }
+        }
+
+        /**
+         * Merges the answers that are done by build ID, preferring earlier ones
+         *
+         * @throws IOException the first failure, if none of the answers that are done succeeded
+         */
+        static List<Utils.IOSVersion> merge(List<CompletableFuture<List<Utils.IOSVersion>>> answers) throws IOException {
+            var merged = new LinkedHashMap<String, Utils.IOSVersion>();
+            IOException failure = null;
+            boolean anySucceeded = false;
+            for (var answer : answers) {
+                if (!answer.isDone()) {
+                    continue;
+                }
+                try {
+                    for (Utils.IOSVersion version : answer.join()) {
+                        merged.putIfAbsent(version.buildid(), version);
+                    }
+                    anySucceeded = true;
+                } catch (RuntimeException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (failure == null) { // report the first provider's error, like before providers were hedged
+                        failure = cause instanceof IOException io ? io : new IOException(cause);
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+            if (!anySucceeded) {
+                throw failure;
+            }
+            return List.copyOf(merged.values());
+        }
+
+        /**
+         * Runs the call in the thread pool. Cancelling the returned future interrupts the call.
+         */
+        private static <T> CompletableFuture<T> start(Callable<T> call) {
+            var task = new FutureTask<>(call);
+            var future = new CompletableFuture<T>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    task.cancel(true);
+                    return super.cancel(mayInterruptIfRunning);
+                }
+            };
+            Utils.executeInThreadPool(() -> {
+                task.run();
+                try {
+                    future.complete(task.get());
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(e.getCause());
+                } catch (CancellationException | InterruptedException e) {
+                    future.cancel(false);
+                }
+            });
+            return future;
+        }
+
+        /**
+         * @return a future that completes normally when all of the futures are done, even if some of them failed
+         */
+        private static CompletableFuture<Void> allDone(List<? extends CompletableFuture<?>> futures) {
+            return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(_ -> null);
+        }
+    }
+}
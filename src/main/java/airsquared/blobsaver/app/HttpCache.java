@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * On-disk HTTP cache for the firmware catalogs, shared between the GUI, CLI, and background processes.
+ * <p>
+ * Each response is stored along with its {@code ETag} and {@code Last-Modified} validators. Later requests are
+ * conditional, so a {@code 304 Not Modified} response is served from disk without downloading the document again.
+ * If the server can't be reached or returns a server error, the stale copy is used instead.
+ */
+final class HttpCache {
+
+    private static final Path directory = Utils.getCacheDirectory().resolve("http");
+
+    private static final SingleFlight<String, Path> inFlight = new SingleFlight<>();
+
+    /**
+     * Concurrent requests for the same URL share one request.
+     *
+     * @return the path to the up-to-date response body; it must not be modified
+     * @throws IOException if the request failed and there is no cached copy
+     */
+    static Path get(String url) throws IOException {
+        return inFlight.get(url, () -> fetch(url));
+    }
+
+    private static Path fetch(String url) throws IOException {
+        String key = key(url);
+        Path body = directory.resolve(key + ".json");
+        Path metadata = directory.resolve(key + ".properties");
+        Properties validators = readValidators(body, metadata);
+
+        var request = HttpRequest.newBuilder(URI.create(url));
+        if (validators != null) {
+            if (validators.getProperty("ETag") != null) {
+                request.header("If-None-Match", validators.getProperty("ETag"));
+            }
+            if (validators.getProperty("Last-Modified") != null) {
+                request.header("If-Modified-Since", validators.getProperty("Last-Modified"));
+            }
+        }
+
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        HttpResponse<Path> response;
+        try {
+            response = Network.httpClient.send(request.build(), HttpResponse.BodyHandlers.ofFile(temp));
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            if (validators != null) {
+                System.err.println("Unable to reach " + url + "; using cached copy: " + e);
+                return body;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Files.deleteIfExists(temp);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        if (response.statusCode() == 304 && validators != null) {
+            Files.deleteIfExists(temp);
+            System.out.println("Not modified: " + url);
+            return body;
+        } else if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            Files.deleteIfExists(temp);
+            if (response.statusCode() >= 500 && validators != null) {
+                System.err.println("HTTP Response was " + response + "; using cached copy");
+                return body;
+            }
+            throw new IOException("HTTP Response was " + response);
+        }
+
+        try {
+            Files.move(temp, body, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) { // e.g. another process is reading it on Windows
+            temp.toFile().deleteOnExit();
+            return temp;
+        }
+        writeValidators(response, metadata);
+        return body;
+    }
+
+    /**
+     * @return the stored validators, or null if there is no cached copy
+     */
+    private static Properties readValidators(Path body, Path metadata) {
+        if (!Files.exists(body) || !Files.exists(metadata)) {
+            return null;
+        }
+        var validators = new Properties();
+        try (var reader = Files.newBufferedReader(metadata, StandardCharsets.UTF_8)) {
+            validators.load(reader);
+            return validators;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void writeValidators(HttpResponse<?> response, Path metadata) {
+        var validators = new Properties();
+        response.headers().firstValue("ETag").ifPresent(etag -> validators.setProperty("ETag", etag));
+        response.headers().firstValue("Last-Modified").ifPresent(date -> validators.setProperty("Last-Modified", date));
+        validators.setProperty("URL", response.uri().toString());
+        try {
+            Path temp = Files.createTempFile(directory, "validators", ".tmp");
+            try (var writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                validators.store(writer, null);
+            }
+            Files.move(temp, metadata, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String key(String url) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return Utils.bytesToHex(digest, ByteOrder.BIG_ENDIAN);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Index of the IPSWs and build manifests in the {@linkplain Prefs#getIPSWLibrary() IPSW library} directory, so that
+ * a local firmware mirror can be used instead of downloading build manifests.
+ * <p>
+ * Each file is indexed by the build ID and device identifiers in its build manifest. The index is stored in the cache
+ * directory along with each file's size and modification time, so only new or changed files are read again. The
+ * directory is rescanned when a {@link WatchService} reports a change, or before every lookup if it can't
+ * be watched. Manifests inside IPSWs are extracted the first time they are needed.
+ */
+final class IPSWLibrary {
+
+    private static final Path indexFile = Utils.getCacheDirectory().resolve("ipsw-library.json");
+    private static final Path manifestDirectory = Utils.getCacheDirectory().resolve("ipsw-library");
+
+    /**
+     * @param buildid null if the file isn't a build manifest or an IPSW with one
+     */
+    private record Entry(long size, long modified, String buildid, List<String> deviceIdentifiers) {
+    }
+
+    /**
+     * Keyed by the file's path
+     */
+    private static Map<String, Entry> entries;
+
+    /**
+     * Keyed by device identifier followed by a space and the build ID
+     */
+    private static Map<String, Path> files = Map.of();
+
+    private static Path indexedDirectory;
+
+    private static final SingleFlight<Path, Path> extractions = new SingleFlight<>();
+
+    private static WatchService watchService;
+
+    /**
+     * Null if the directory can't be watched
+     */
+    private static WatchKey watchKey;
+
+    /**
+     * @return the build manifest from the library, or null if the library doesn't have the build for the device.
+     * It must not be modified or deleted.
+     */
+    static Path find(String deviceIdentifier, String buildid) throws IOException {
+        var directory = Prefs.getIPSWLibrary().orElse(null);
+        return directory == null ? null : find(directory, deviceIdentifier, buildid);
+    }
+
+    /**
+     * @param directory the IPSW library directory
+     * @see #find(String, String)
+     */
+    static Path find(Path directory, String deviceIdentifier, String buildid) throws IOException {
+        Path file = findFile(directory.toAbsolutePath().normalize(), deviceIdentifier, buildid);
+        if (file == null || !isIPSW(file)) {
+            return file;
+        }
+        return extractions.get(file, () -> extract(file));
+    }
+
+    private static Path extract(Path file) throws IOException {
+        Path manifest = manifestDirectory.resolve(key(file) + ".plist");
+        if (Files.exists(manifest)) {
+            return manifest;
+        }
+        Files.createDirectories(manifestDirectory);
+        Path temp = Files.createTempFile(manifestDirectory, "BuildManifest", ".tmp");
+        try {
+            try (var source = new ZipReader.MappedFileSource(file)) {
+                ZipReader.extract(source, "BuildManifest.plist", temp);
+            }
+            Files.move(temp, manifest, ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        System.out.println("Extracted manifest from IPSW library: " + file);
+        return manifest;
+    }
+
+    /**
+     * @return true if the manifest belongs to the library and should not be deleted after use
+     */
+    static boolean contains(Path manifest) {
+        return manifest.startsWith(manifestDirectory)
+                || Prefs.getIPSWLibrary().map(directory -> manifest.startsWith(directory.toAbsolutePath().normalize())).orElse(false);
+    }
+
+    private static synchronized Path findFile(Path directory, String deviceIdentifier, String buildid) {
+        if (!directory.equals(indexedDirectory)) {
+            if (watchKey != null) {
+                try {
+                    watchKey.cancel();
+                    watchService.close();
+                } catch (IOException ignored) {
+                }
+            }
+            indexedDirectory = directory;
+            watch();
+            scan();
+        } else if (watchKey == null || !watchKey.pollEvents().isEmpty()) {
+            scan();
+        }
+        if (watchKey != null && !watchKey.reset()) { // directory was deleted
+            watchKey = null;
+        }
+        return files.get(deviceIdentifier + " " + buildid);
+    }
+
+    private static void watch() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            watchKey = indexedDirectory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Unable to watch " + indexedDirectory + " for changes: " + e);
+            watchKey = null;
+            try {
+                if (watchService != null) {
+                    watchService.close();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void scan() {
+        if (entries == null) {
+            entries = load();
+        }
+        List<Path> list;
+        try (Stream<Path> stream = Files.list(indexedDirectory)) {
+            list = stream.filter(f -> isIPSW(f) || f.toString().endsWith(".plist")).toList();
+        } catch (IOException e) {
+            System.err.println("Unable to read IPSW library " + indexedDirectory + ": " + e);
+            files = Map.of();
+            return;
+        }
+
+        var scanned = new HashMap<String, Entry>();
+        var newFiles = new HashMap<String, Path>();
+        for (Path file : list) {
+            Entry entry;
+            try {
+                var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                entry = entries.get(file.toString());
+                if (entry == null || entry.size() != attributes.size() || entry.modified() != attributes.lastModifiedTime().toMillis()) {
+                    entry = read(file, attributes);
+                }
+            } catch (IOException e) { // deleted in the meantime
+                continue;
+            }
+            scanned.put(file.toString(), entry);
+            if (entry.buildid() != null) {
+                for (String deviceIdentifier : entry.deviceIdentifiers()) {
+                    newFiles.putIfAbsent(deviceIdentifier + " " + entry.buildid(), file);
+                }
+            }
+        }
+        files = Map.copyOf(newFiles);
+        if (!scanned.equals(entries)) {
+            entries = scanned;
+            save();
+            deleteUnusedManifests();
+        }
+    }
+
+    private static Entry read(Path file, BasicFileAttributes attributes) {
+        long size = attributes.size(), modified = attributes.lastModifiedTime().toMillis();
+        Object manifest;
+        try {
+            if (isIPSW(file)) {
+                try (var source = new ZipReader.MappedFileSource(file);
+                     var stream = ZipReader.open(source, "BuildManifest.plist")) {
+                    manifest = Plist.parse(stream);
+                }
+            } else {
+                manifest = Plist.parse(file);
+            }
+        } catch (IOException e) { // e.g. still being downloaded; it will be read again once it is modified
+            System.err.println("Unable to read build manifest from " + file + ": " + e);
+            return new Entry(size, modified, null, List.of());
+        }
+        if (manifest instanceof Map<?, ?> dict && dict.get("ProductBuildVersion") instanceof String buildid
+                && dict.get("SupportedProductTypes") instanceof List<?> types) {
+            System.out.println("Indexed " + file + " (" + buildid + " for " + types + ")");
+            return new Entry(size, modified, buildid, types.stream().map(Object::toString).toList());
+        }
+        return new Entry(size, modified, null, List.of()); // not a build manifest
+    }
+
+    private static boolean isIPSW(Path file) {
+        return file.toString().endsWith(".ipsw");
+    }
+
+    /**
+     * Extracted manifests are named after the IPSW's path and modification time, so they are replaced when it changes
+     */
+    private static String key(Path ipsw) throws IOException {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ipsw.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(Long.toString(Files.getLastModifiedTime(ipsw).toMillis()).getBytes(StandardCharsets.UTF_8));
+            return Utils.bytesToHex(digest.digest(), ByteOrder.BIG_ENDIAN);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void deleteUnusedManifests() {
+        if (!Files.isDirectory(manifestDirectory)) {
+            return;
+        }
+        var used = new HashSet<String>();
+        for (String file : entries.keySet()) {
+            if (!isIPSW(Path.of(file))) {
+                continue;
+            }
+            try {
+                used.add(key(Path.of(file)) + ".plist");
+            } catch (IOException ignored) {
+            }
+        }
+        try (Stream<Path> stream = Files.list(manifestDirectory)) {
+            for (Path manifest : stream.toList()) {
+                if (!used.contains(manifest.getFileName().toString())) {
+                    Files.deleteIfExists(manifest);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Map<String, Entry> load() {
+        try {
+            Map<String, Entry> read = new Gson().fromJson(Files.readString(indexFile), new TypeToken<Map<String, Entry>>() {}.getType());
+            if (read != null) {
+                return read;
+            }
+        } catch (IOException ignored) { // doesn't exist yet
+        } catch (JsonParseException e) {
+            System.err.println("Unable to read IPSW library index; ignoring it");
+            e.printStackTrace();
+        }
+        return new HashMap<>();
+    }
+
+    private static void save() {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path temp = Files.createTempFile(indexFile.getParent(), "ipsw-library", ".tmp");
+            Files.writeString(temp, new Gson().toJson(entries));
+            Files.move(temp, indexFile, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private IPSWLibrary() {
+    }
+}
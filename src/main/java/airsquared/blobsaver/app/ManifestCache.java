@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * On-disk cache of build manifests, shared between the GUI, CLI, and background processes.
+ * <p>
+ * Manifests are stored under a hash of their IPSW URL and build ID. The cache is limited to {@link #maxSize},
+ * evicting the least recently used manifests first.
+ * A manifest is written to a temporary file and atomically moved into place, so other processes never
+ * see a partially written manifest.
+ */
+final class ManifestCache {
+
+    private static final Path directory = Utils.getCacheDirectory().resolve("manifests");
+
+    /**
+     * The maximum total size of the cached manifests, in bytes
+     */
+    private static final long maxSize = 200L * 1024 * 1024;
+
+    /**
+     * Manifests used more recently than this are never evicted, since another process might be about to pass
+     * them to tsschecker.
+     */
+    private static final Duration inUseGracePeriod = Duration.ofMinutes(10);
+
+    private static final SingleFlight<String, Path> inFlight = new SingleFlight<>();
+
+    /**
+     * Returns the path to the cached build manifest for the IPSW, downloading it if it is not cached yet.
+     * Concurrent calls for the same manifest share one download.
+     * Local {@code file:} URLs are not cached; for those, a temporary file is returned instead.
+     *
+     * @param buildid the build ID of the IPSW, or null if it is unknown
+     */
+    static Path get(String ipswURL, String buildid) throws IOException {
+        if (ipswURL.startsWith("file:")) { // each caller deletes its own copy, so they can't be shared
+            return Utils.extractBuildManifest(ipswURL);
+        }
+        String key = key(ipswURL, buildid);
+        return inFlight.get(key, () -> fetch(ipswURL, key));
+    }
+
+    private static Path fetch(String ipswURL, String key) throws IOException {
+        Path cached = directory.resolve(key + ".plist");
+        if (Files.exists(cached)) {
+            try {
+                Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+                System.out.println("Using cached manifest " + cached);
+                return cached;
+            } catch (IOException e) { // evicted by another process
+                e.printStackTrace();
+            }
+        }
+
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "BuildManifest", ".tmp");
+        try {
+            Utils.extractBuildManifest(ipswURL, temp);
+            try {
+                Files.move(temp, cached, ATOMIC_MOVE, REPLACE_EXISTING);
+            } catch (IOException e) {
+                if (!Files.exists(cached)) { // ignore if another process cached it at the same time
+                    throw e;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict(directory, maxSize);
+        return cached;
+    }
+
+    /**
+     * Returns a copy of the manifest with only the build identities for the board configuration, made with
+     * {@link ManifestSlimmer}. Slimmed manifests are cached by build ID and board configuration, and evicted like the
+     * other cached manifests.
+     *
+     * @param buildid the build ID of the manifest, or null if it is unknown
+     * @return the slimmed manifest, or {@code manifest} itself if it can't be slimmed
+     */
+    static Path slim(Path manifest, String buildid, String boardConfig) throws IOException {
+        if (buildid == null || boardConfig == null) {
+            return manifest;
+        }
+        String key = key("slim " + boardConfig.toLowerCase(Locale.ROOT), buildid);
+        return inFlight.get(key, () -> {
+            Path cached = directory.resolve(key + ".plist");
+            if (Files.exists(cached)) {
+                try {
+                    Files.setLastModifiedTime(cached, FileTime.from(Instant.now()));
+                    return cached;
+                } catch (IOException e) { // evicted by another process
+                    e.printStackTrace();
+                }
+            }
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "BuildManifest", ".tmp");
+            try {
+                if (!ManifestSlimmer.slim(manifest, boardConfig, temp)) {
+                    System.err.println("No build identities for " + boardConfig + " in " + manifest + "; using the full manifest");
+                    return manifest;
+                }
+                Files.move(temp, cached, ATOMIC_MOVE, REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            System.out.println("Slimmed manifest for " + boardConfig + " " + buildid + ": " + Files.size(manifest) + " -> " + Files.size(cached) + " bytes");
+            evict(directory, maxSize);
+            return cached;
+        });
+    }
+
+    /**
+     * @return true if the manifest is stored in the cache and should not be deleted after use
+     */
+    static boolean contains(Path manifest) {
+        return manifest.startsWith(directory);
+    }
+
+    /**
+     * @param ipswURL the IPSW URL, or another string that identifies the manifest along with the build ID
+     */
+    private static String key(String ipswURL, String buildid) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ipswURL.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(Utils.defIfNull(buildid, "").getBytes(StandardCharsets.UTF_8));
+            return Utils.bytesToHex(digest.digest(), ByteOrder.BIG_ENDIAN);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used manifests in {@code cacheDirectory} until they total at most {@code limit} bytes.
+     * <p>
+     * A file lock is used to make sure only one process evicts at a time.
+     */
+    static synchronized void evict(Path cacheDirectory, long limit) throws IOException {
+        try (var lockChannel = FileChannel.open(cacheDirectory.resolve(".lock"), CREATE, WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            record Entry(Path path, long size, FileTime lastUsed) {}
+            List<Path> files;
+            try (Stream<Path> list = Files.list(cacheDirectory)) {
+                files = list.filter(f -> f.toString().endsWith(".plist")).toList();
+            }
+            var entries = new ArrayList<Entry>(files.size());
+            long totalSize = 0;
+            for (Path file : files) {
+                try {
+                    var entry = new Entry(file, Files.size(file), Files.getLastModifiedTime(file));
+                    entries.add(entry);
+                    totalSize += entry.size();
+                } catch (IOException e) { // deleted by another process in the meantime
+                }
+            }
+            if (totalSize <= limit) {
+                return;
+            }
+
+            entries.sort(Comparator.comparing(Entry::lastUsed));
+            var cutoff = FileTime.from(Instant.now().minus(inUseGracePeriod));
+            for (Entry entry : entries) {
+                if (totalSize <= limit || entry.lastUsed().compareTo(cutoff) > 0) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(entry.path());
+                    totalSize -= entry.size();
+                    System.out.println("Evicted cached manifest " + entry.path());
+                } catch (IOException e) { // might be open by tsschecker on Windows
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
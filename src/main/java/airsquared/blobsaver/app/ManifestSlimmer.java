@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes the build identities for other devices from a build manifest. Universal IPSWs have dozens of identities,
+ * and tsschecker would otherwise parse all of them for every version of every device.
+ * <p>
+ * The manifest is copied as XML events, one identity at a time, so only a single identity is held in memory and
+ * everything that is kept is written exactly as it was read.
+ */
+final class ManifestSlimmer {
+
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+    /**
+     * Keeps the identities whose {@code DeviceClass} is the board configuration. The board configuration also
+     * determines the chip, so every identity that is kept has the device's {@code ApChipID}.
+     *
+     * @param destination where the manifest with only the identities for the board configuration is written
+     * @return false if the manifest has no identities for the board configuration
+     */
+    static boolean slim(Path manifest, String boardConfig, Path destination) throws IOException {
+        try (var in = Files.newInputStream(manifest); var out = Files.newOutputStream(destination)) {
+            XMLEventReader reader = Plist.newEventReader(in);
+            XMLEventWriter writer = outputFactory.createXMLEventWriter(out, "UTF-8");
+            try {
+                int depth = 0, kept = 0;
+                var key = new StringBuilder();
+                String topLevelKey = null;
+                boolean inIdentities = false;
+                var whitespace = new ArrayList<XMLEvent>(); // before the next identity, dropped along with it
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (inIdentities && depth == 3) { // directly inside the BuildIdentities array
+                        if (event.isStartElement()) {
+                            List<XMLEvent> identity = readElement(reader, event);
+                            if (matches(identity, boardConfig)) {
+                                kept++;
+                                add(writer, whitespace);
+                                add(writer, identity);
+                            }
+                            whitespace.clear();
+                            continue;
+                        } else if (!event.isEndElement()) {
+                            whitespace.add(event);
+                            continue;
+                        }
+                        add(writer, whitespace);
+                        inIdentities = false;
+                    }
+                    if (event.isStartElement()) {
+                        depth++;
+                        key.setLength(0);
+                        // depth 2 is the top-level dict, so its keys and values are at depth 3
+                        inIdentities = depth == 3 && "BuildIdentities".equals(topLevelKey)
+                                && event.asStartElement().getName().getLocalPart().equals("array");
+                    } else if (event.isCharacters()) {
+                        key.append(event.asCharacters().getData());
+                    } else if (event.isEndElement()) {
+                        if (depth == 3 && event.asEndElement().getName().getLocalPart().equals("key")) {
+                            topLevelKey = key.toString();
+                        }
+                        depth--;
+                    }
+                    writer.add(event);
+                }
+                writer.flush();
+                return kept > 0;
+            } finally {
+                writer.close();
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to parse build manifest", e);
+        }
+    }
+
+    /**
+     * @return the events from {@code start} up to and including its end element
+     */
+    private static List<XMLEvent> readElement(XMLEventReader reader, XMLEvent start) throws XMLStreamException {
+        var events = new ArrayList<XMLEvent>();
+        events.add(start);
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static void add(XMLEventWriter writer, List<XMLEvent> events) throws XMLStreamException {
+        for (XMLEvent event : events) {
+            writer.add(event);
+        }
+    }
+
+    /**
+     * Finds {@code Info.DeviceClass} in the events of an identity dict
+     */
+    private static boolean matches(List<XMLEvent> identity, String boardConfig) {
+        int depth = 0;
+        String identityKey = null, infoKey = null;
+        var text = new StringBuilder();
+        for (XMLEvent event : identity) {
+            if (event.isStartElement()) {
+                depth++;
+                text.setLength(0);
+            } else if (event.isCharacters()) {
+                text.append(event.asCharacters().getData());
+            } else if (event.isEndElement()) {
+                String name = event.asEndElement().getName().getLocalPart();
+                if (depth == 2 && name.equals("key")) {
+                    identityKey = text.toString();
+                } else if (depth == 3 && "Info".equals(identityKey)) {
+                    if (name.equals("key")) {
+                        infoKey = text.toString();
+                    } else if (name.equals("string") && "DeviceClass".equals(infoKey)) {
+                        return text.toString().equalsIgnoreCase(boardConfig);
+                    }
+                }
+                depth--;
+            }
+        }
+        return false;
+    }
+
+    private ManifestSlimmer() {
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Case-insensitive Aho-Corasick automaton that finds all of a fixed set of ASCII patterns in one pass over the text.
+ * <p>
+ * The automaton is built once as a complete transition table, so matching does one array lookup per character
+ * regardless of how many patterns there are.
+ */
+final class MultiPatternMatcher {
+
+    private static final int alphabetSize = 128; // non-ASCII characters never match and go back to the root
+
+    private final int[][] transitions;
+    /**
+     * Patterns that end at each state, including those reached through failure links
+     */
+    private final BitSet[] outputs;
+    private final int patternCount;
+
+    MultiPatternMatcher(List<String> patterns) {
+        patternCount = patterns.size();
+        var goTo = new ArrayList<int[]>();
+        var out = new ArrayList<BitSet>();
+        goTo.add(newState());
+        out.add(new BitSet(patternCount));
+
+        for (int p = 0; p < patterns.size(); p++) {
+            int state = 0;
+            for (char c : patterns.get(p).toCharArray()) {
+                int symbol = fold(c);
+                if (symbol >= alphabetSize) {
+                    throw new IllegalArgumentException("Only ASCII patterns are supported: " + patterns.get(p));
+                }
+                if (goTo.get(state)[symbol] < 0) {
+                    goTo.get(state)[symbol] = goTo.size();
+                    goTo.add(newState());
+                    out.add(new BitSet(patternCount));
+                }
+                state = goTo.get(state)[symbol];
+            }
+            out.get(state).set(p);
+        }
+
+        // breadth-first construction of failure links, folded directly into the transition table
+        transitions = goTo.toArray(int[][]::new);
+        outputs = out.toArray(BitSet[]::new);
+        int[] failure = new int[transitions.length];
+        int[] queue = new int[transitions.length];
+        int head = 0, tail = 0;
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int next = transitions[0][symbol];
+            if (next < 0) {
+                transitions[0][symbol] = 0;
+            } else {
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            outputs[state].or(outputs[failure[state]]);
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int next = transitions[state][symbol];
+                if (next < 0) {
+                    transitions[state][symbol] = transitions[failure[state]][symbol];
+                } else {
+                    failure[next] = transitions[failure[state]][symbol];
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the index of every pattern that occurs in {@code text} in {@code found}.
+     */
+    void findAll(CharSequence text, BitSet found) {
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            int symbol = fold(text.charAt(i));
+            state = symbol < alphabetSize ? transitions[state][symbol] : 0;
+            if (!outputs[state].isEmpty()) {
+                found.or(outputs[state]);
+            }
+        }
+    }
+
+    BitSet findAll(CharSequence text) {
+        var found = new BitSet(patternCount);
+        findAll(text, found);
+        return found;
+    }
+
+    private static int fold(char c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static int[] newState() {
+        int[] state = new int[alphabetSize];
+        Arrays.fill(state, -1);
+        return state;
+    }
+}
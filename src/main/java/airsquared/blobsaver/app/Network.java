@@ -21,27 +21,31 @@ package airsquared.blobsaver.app;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
 import java.net.URI;
-import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
@@ -50,10 +54,19 @@ import static java.nio.file.StandardOpenOption.WRITE;
 public class Network {
 
     // one instance, reuse
-    private static final HttpClient httpClient = HttpClient.newHttpClient();
+    static final HttpClient httpClient = HttpClient.newHttpClient();
 
     // Performs a POST Request with the specified URL and Parameters
     public static HttpResponse<String> makePOSTRequest(String url, Map<Object, Object> parameters, Map<String, String> headers, boolean convertParamtersToJSON) throws IOException, InterruptedException {
+        return httpClient.send(buildPOSTRequest(url, parameters, headers, convertParamtersToJSON), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Same as makePOSTRequest, but doesn't block while waiting for the response
+    static CompletableFuture<HttpResponse<String>> makePOSTRequestAsync(String url, Map<Object, Object> parameters, Map<String, String> headers, boolean convertParamtersToJSON) {
+        return httpClient.sendAsync(buildPOSTRequest(url, parameters, headers, convertParamtersToJSON), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest buildPOSTRequest(String url, Map<Object, Object> parameters, Map<String, String> headers, boolean convertParamtersToJSON) {
         // convert Arguments to JSON (and use them if convertParametersToJSON is true)
         Gson gson = new Gson();
         String JSONParameters = gson.toJson(parameters);
@@ -64,10 +77,15 @@ public class Network {
         for (Map.Entry<String, String> entry : headers.entrySet())
             requestBuilder.header(entry.getKey(), entry.getValue());
 
-        HttpRequest request = requestBuilder.build();
-        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        return requestBuilder.build();
     }
 
+    // Performs a POST Request with a raw body, reusing pooled connections
+    static HttpResponse<String> makePOSTRequest(URI uri, String body, Map<String, String> headers, Duration timeout) throws IOException, InterruptedException {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri).POST(BodyPublishers.ofString(body)).timeout(timeout);
+        headers.forEach(requestBuilder::header);
+        return httpClient.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofString());
+    }
 
     private static HttpRequest.BodyPublisher buildFormDataFromMap(Map<Object, Object> data) {
         var builder = new StringBuilder();
@@ -83,18 +101,42 @@ public class Network {
     }
 
     static JsonElement makeJsonRequest(String url) throws IOException {
+        try (var reader = makeJsonReaderRequest(url)) {
+            return JsonParser.parseReader(reader);
+        }
+    }
+
+    /**
+     * @return a reader that parses the response as it is received; it must be closed
+     */
+    static JsonReader makeJsonReaderRequest(String url) throws IOException {
         try {
             HttpResponse<InputStream> response = httpClient.send(HttpRequest.newBuilder(URI.create(url)).build(),
                     HttpResponse.BodyHandlers.ofInputStream());
             if (failure(response.statusCode())) {
+                response.body().close();
                 throw new IOException("HTTP Response was " + response);
             }
-            return JsonParser.parseReader(new BufferedReader(new InputStreamReader(response.body())));
+            return new JsonReader(new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8)));
         } catch (InterruptedException e) {
             throw new IOException(e);
         }
     }
 
+    /**
+     * Same as {@link #makeJsonReaderRequest(String)}, but revalidates a copy stored in the {@link HttpCache} instead
+     * of downloading the whole document every time. Meant for documents that rarely change, like firmware catalogs.
+     */
+    static JsonReader makeCachedJsonReaderRequest(String url) throws IOException {
+        return new JsonReader(Files.newBufferedReader(HttpCache.get(url), StandardCharsets.UTF_8));
+    }
+
+    static JsonElement makeCachedJsonRequest(String url) throws IOException {
+        try (var reader = makeCachedJsonReaderRequest(url)) {
+            return JsonParser.parseReader(reader);
+        }
+    }
+
     static void makeVoidRequest(String url) throws IOException, InterruptedException {
         httpClient.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.discarding());
     }
@@ -112,34 +154,195 @@ public class Network {
         return statusCode < 200 || statusCode > 299;
     }
 
+    private record ContentRange(long first, long last, long completeLength) {
+        static ContentRange of(HttpResponse<?> response) throws IOException {
+            String header = response.headers().firstValue("Content-Range")
+                    .orElseThrow(() -> new IOException("No Content-Range header in " + response));
+            try { // bytes <first>-<last>/<complete length>
+                return new ContentRange(Long.parseLong(header.substring(header.indexOf(' ') + 1, header.indexOf('-'))),
+                        Long.parseLong(header.substring(header.indexOf('-') + 1, header.indexOf('/'))),
+                        Long.parseLong(header.substring(header.indexOf('/') + 1)));
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                throw new IOException("Invalid Content-Range header: " + header, e);
+            }
+        }
+    }
+
+    /**
+     * Reads parts of an HTTP resource with one {@code Range} request each, for {@link ZipReader}.
+     */
+    static final class HttpRangeSource implements ZipReader.RangeSource {
+
+        private final URI uri;
+        private long size = -1;
+
+        HttpRangeSource(URI uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public ByteBuffer tail(int length) throws IOException {
+            var response = sendRange("bytes=-" + length);
+            try (var body = new RangeInputStream(response.body(), length)) {
+                if (response.statusCode() == 206) {
+                    size = ContentRange.of(response).completeLength();
+                } else if (response.headers().firstValueAsLong("Content-Length").orElse(Long.MAX_VALUE) > length) {
+                    throw new IOException("Server does not support range requests: HTTP Response was " + response);
+                }
+                byte[] bytes = body.readNBytes(length);
+                if (response.statusCode() != 206) { // the whole resource, since it is shorter than the range
+                    size = bytes.length;
+                }
+                return ByteBuffer.wrap(bytes);
+            }
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public InputStream open(long offset, long length) throws IOException {
+            var response = sendRange("bytes=" + offset + "-" + (offset + length - 1));
+            if (response.statusCode() != 206) {
+                response.body().close();
+                throw new IOException("Server does not support range requests: HTTP Response was " + response);
+            }
+            var range = ContentRange.of(response);
+            if (range.first() != offset || range.last() != offset + length - 1) {
+                response.body().close();
+                throw new IOException("Requested " + length + " bytes from " + offset + ", but got " + range);
+            }
+            return new RangeInputStream(response.body(), length);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private HttpResponse<InputStream> sendRange(String range) throws IOException {
+            try {
+                var response = httpClient.send(HttpRequest.newBuilder(uri).header("Range", range).build(),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                if (failure(response.statusCode())) {
+                    response.body().close();
+                    throw new IOException("HTTP Response was " + response);
+                }
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * A response body that is read to its end before it is closed, if everything that was requested was read, so
+     * that the connection is returned to the pool instead of being closed
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (remaining <= 0) {
+                    in.read();
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+
     /**
-     * Source: https://github.com/jcodec/jcodec/blob/6e1ec651eca92d21b41f9790143a0e6e4d26811e/android/src/main/org/jcodec/common/io/HttpChannel.java
+     * A read-only channel over an HTTP resource, using {@code Range} requests to seek.
+     * <p>
+     * Data is read in aligned blocks of {@link #blockSize} bytes, and recently used blocks are cached so that seeking
+     * back to them doesn't need another request. Each request asks for a bounded range: the block being read and the
+     * blocks read ahead. While reads are sequential, more blocks are read ahead each time. Every response is read to
+     * the end, so the shared {@link #httpClient} can reuse its HTTP/2 or keep-alive connection for the next request.
+     * <p>
+     * If the server ignores the {@code Range} header of the first request, the whole resource is streamed from that
+     * response instead, and reads can only continue forward from it.
+     * <p>
+     * Originally from https://github.com/jcodec/jcodec/blob/6e1ec651eca92d21b41f9790143a0e6e4d26811e/android/src/main/org/jcodec/common/io/HttpChannel.java
      *
      * @author The JCodec project
      */
     static final class HttpChannel implements SeekableByteChannel {
 
-        private final URL url;
-        private ReadableByteChannel ch;
+        static final int blockSize = 64 * 1024;
+        private static final int maxCachedBlocks = 64;
+        private static final int maxReadAhead = 16;
+
+        private final URI uri;
+        private final Map<Long, byte[]> blocks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > maxCachedBlocks;
+            }
+        };
+        /**
+         * The response being read, or null once it has been read to the end
+         */
+        private InputStream stream;
+        private long streamPos;
+        /**
+         * The end of the last response, exclusive
+         */
+        private long streamEnd = -1;
         private long pos;
-        private long length;
+        private long length = -1;
+        private int readAhead = 1;
+        private boolean open = true;
 
-        public HttpChannel(URL url) {
-            this.url = url;
+        public HttpChannel(URI uri) {
+            this.uri = uri;
         }
 
         @Override
-        public long position() {
+        public long position() throws IOException {
+            ensureOpen();
             return pos;
         }
 
         @Override
         public SeekableByteChannel position(long newPosition) throws IOException {
-            if (newPosition == pos) {
-                return this;
-            } else if (ch != null) {
-                ch.close();
-                ch = null;
+            ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("Negative position " + newPosition);
             }
             pos = newPosition;
             return this;
@@ -148,6 +351,9 @@ public class Network {
         @Override
         public long size() throws IOException {
             ensureOpen();
+            if (length < 0) {
+                fetch(pos / blockSize);
+            }
             return length;
         }
 
@@ -158,10 +364,22 @@ public class Network {
 
         @Override
         public int read(ByteBuffer buffer) throws IOException {
-            ensureOpen();
-            int read = ch.read(buffer);
-            if (read != -1)
-                pos += read;
+            if (pos >= size()) {
+                return -1;
+            }
+            int read = 0;
+            while (buffer.hasRemaining() && pos < length) {
+                long index = pos / blockSize;
+                byte[] block = blocks.get(index);
+                if (block == null) {
+                    block = fetch(index);
+                }
+                int offset = (int) (pos - index * blockSize);
+                int n = Math.min(buffer.remaining(), block.length - offset);
+                buffer.put(block, offset, n);
+                pos += n;
+                read += n;
+            }
             return read;
         }
 
@@ -172,35 +390,122 @@ public class Network {
 
         @Override
         public boolean isOpen() {
-            return ch != null && ch.isOpen();
+            return open;
         }
 
         @Override
         public void close() throws IOException {
-            ch.close();
+            open = false;
+            blocks.clear();
+            closeStream();
         }
 
-        private void ensureOpen() throws IOException {
-            if (ch == null) {
-                URLConnection connection = url.openConnection();
-                if (pos > 0)
-                    connection.addRequestProperty("Range", "bytes=" + pos + "-");
-                ch = Channels.newChannel(connection.getInputStream());
-                 if (connection instanceof HttpURLConnection c && (c.getResponseCode() < 200 || c.getResponseCode() > 299)) {
-                    throw new IOException("HTTP Response was " + c.getResponseCode() + " " + Utils.defIfNull(c.getResponseMessage(), ""));
+        private void ensureOpen() throws ClosedChannelException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+
+        /**
+         * Requests the block and the blocks read ahead, unless the block is still ahead in the current response.
+         * Every block read is cached.
+         */
+        private byte[] fetch(long index) throws IOException {
+            long start = index * blockSize;
+            if (stream == null || start < streamPos || start >= streamEnd) {
+                readAhead = start == streamEnd ? Math.min(readAhead * 2, maxReadAhead) : 1; // sequential
+                connect(start, start + (long) readAhead * blockSize);
+            }
+            while (streamPos < start) {
+                readBlock();
+            }
+            byte[] block = readBlock();
+            // don't start another request for a block read ahead if the server sent less than was asked for
+            for (int i = 1; i < readAhead && Math.min(streamPos + blockSize, length) <= streamEnd; i++) {
+                readBlock();
+            }
+            if (streamPos >= streamEnd) {
+                closeStream(); // it was read to the end, so the connection is returned to the pool
+            }
+            return block;
+        }
+
+        /**
+         * Reads the whole block at {@link #streamPos}. If the response ends within it, the rest is requested.
+         */
+        private byte[] readBlock() throws IOException {
+            long blockStart = streamPos;
+            byte[] block = new byte[(int) Math.min(blockSize, length - blockStart)];
+            int filled = 0;
+            while (filled < block.length) {
+                if (streamPos >= streamEnd) {
+                    connect(streamPos, blockStart + block.length);
+                }
+                int n = (int) Math.min(block.length - filled, streamEnd - streamPos);
+                if (stream.readNBytes(block, filled, n) < n) {
+                    throw new EOFException("Response ended before " + streamEnd + " bytes");
                 }
-                String resp = connection.getHeaderField("Content-Range");
-                if (resp != null) {
-                    length = Long.parseLong(resp.split("/")[1]);
-                } else {
-                    resp = connection.getHeaderField("Content-Length");
-                    if (resp == null) {
-                        throw new IOException("No Content-Range or Content-Length header");
+                filled += n;
+                streamPos += n;
+            }
+            blocks.put(blockStart / blockSize, block);
+            return block;
+        }
+
+        /**
+         * @param end the end of the range to request, exclusive. It may be past the end of the resource.
+         */
+        private void connect(long start, long end) throws IOException {
+            closeStream();
+            if (length >= 0) {
+                end = Math.min(end, length);
+            }
+            var request = HttpRequest.newBuilder(uri).header("Range", "bytes=" + start + "-" + (end - 1));
+            HttpResponse<InputStream> response;
+            try {
+                response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            try {
+                if (failure(response.statusCode())) {
+                    throw new IOException("HTTP Response was " + response);
+                } else if (response.statusCode() == 206) {
+                    // the server may send less than was asked for
+                    var range = ContentRange.of(response);
+                    if (range.first() != start || range.last() < start || range.last() >= range.completeLength()) {
+                        throw new IOException("Requested a range from " + start + ", but got " + range);
                     }
-                    length = Long.parseLong(resp);
+                    length = range.completeLength();
+                    end = range.last() + 1;
+                } else if (start > 0) {
+                    throw new IOException("Server does not support range requests: HTTP Response was " + response);
+                } else { // the whole resource
+                    length = response.headers().firstValueAsLong("Content-Length")
+                            .orElseThrow(() -> new IOException("No Content-Range or Content-Length header"));
+                    end = length;
+                }
+            } catch (IOException e) {
+                response.body().close();
+                throw e;
+            }
+            stream = response.body();
+            streamPos = start;
+            streamEnd = end;
+        }
+
+        private void closeStream() throws IOException {
+            if (stream != null) {
+                if (streamPos >= streamEnd) {
+                    // wait for the end of the response, since closing it before then would close the connection
+                    // instead of returning it to the pool
+                    stream.read();
                 }
+                stream.close();
+                stream = null;
             }
         }
 
     }
-}
\ No newline at end of file
+}
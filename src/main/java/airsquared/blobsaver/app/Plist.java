@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * Reads and writes XML property lists without going through libplist.
+ * <p>
+ * Values are mapped to Java types as follows: {@code dict} to {@code Map<String, Object>} (keeping the key order),
+ * {@code array} to {@code List<Object>}, {@code string} and {@code date} to {@code String}, {@code integer} to
+ * {@code Long} (or {@code BigInteger} if it is too large for a {@code long}), {@code real} to {@code Double},
+ * {@code true}/{@code false} to {@code Boolean}, and {@code data} to {@code byte[]}.
+ */
+final class Plist {
+
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+
+    static {
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    static Object parse(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * For copying large property lists without parsing their values
+     */
+    static XMLEventReader newEventReader(InputStream in) throws XMLStreamException {
+        return inputFactory.createXMLEventReader(in);
+    }
+
+    static Object parse(InputStream in) throws IOException {
+        try {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == START_ELEMENT && !reader.getLocalName().equals("plist")) {
+                        return readValue(reader);
+                    }
+                }
+                throw new IOException("Property list is empty");
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to parse property list", e);
+        }
+    }
+
+    /**
+     * Reads the value starting at the current element. Afterwards, the reader is positioned at its end element.
+     */
+    static Object readValue(XMLStreamReader reader) throws XMLStreamException {
+        return switch (reader.getLocalName()) {
+            case "dict" -> {
+                var dict = new LinkedHashMap<String, Object>();
+                while (reader.nextTag() == START_ELEMENT) {
+                    String key = reader.getElementText();
+                    reader.nextTag();
+                    dict.put(key, readValue(reader));
+                }
+                yield dict;
+            }
+            case "array" -> {
+                var array = new ArrayList<>();
+                while (reader.nextTag() == START_ELEMENT) {
+                    array.add(readValue(reader));
+                }
+                yield array;
+            }
+            case "string", "date" -> reader.getElementText();
+            case "integer" -> {
+                var value = new BigInteger(reader.getElementText().trim());
+                yield value.bitLength() < Long.SIZE ? (Object) value.longValue() : value;
+            }
+            case "real" -> Double.parseDouble(reader.getElementText().trim());
+            case "data" -> Base64.getMimeDecoder().decode(reader.getElementText().trim());
+            case "true", "false" -> {
+                boolean value = reader.getLocalName().equals("true");
+                reader.nextTag();
+                yield value;
+            }
+            default -> throw new XMLStreamException("Unknown property list element: " + reader.getLocalName(),
+                    reader.getLocation());
+        };
+    }
+
+    static String toXml(Object value) {
+        var builder = new StringBuilder("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!DOCTYPE plist PUBLIC "-//Apple//DTD PLIST 1.0//EN" "http://www.apple.com/DTDs/PropertyList-1.0.dtd">
+                <plist version="1.0">
+                """);
+        appendValue(builder, value, 0);
+        return builder.append("</plist>\n").toString();
+    }
+
+    private static void appendValue(StringBuilder builder, Object value, int depth) {
+        builder.repeat('\t', depth);
+        switch (value) {
+            case Map<?, ?> dict -> {
+                builder.append("<dict>\n");
+                for (Map.Entry<?, ?> entry : dict.entrySet()) {
+                    builder.repeat('\t', depth + 1).append("<key>");
+                    appendEscaped(builder, entry.getKey().toString()).append("</key>\n");
+                    appendValue(builder, entry.getValue(), depth + 1);
+                }
+                builder.repeat('\t', depth).append("</dict>");
+            }
+            case List<?> array -> {
+                builder.append("<array>\n");
+                for (Object element : array) {
+                    appendValue(builder, element, depth + 1);
+                }
+                builder.repeat('\t', depth).append("</array>");
+            }
+            case String s -> appendEscaped(builder.append("<string>"), s).append("</string>");
+            case Boolean b -> builder.append(b ? "<true/>" : "<false/>");
+            case Long l -> builder.append("<integer>").append(l).append("</integer>");
+            case Integer i -> builder.append("<integer>").append(i).append("</integer>");
+            case BigInteger i -> builder.append("<integer>").append(i).append("</integer>");
+            case Double d -> builder.append("<real>").append(d).append("</real>");
+            case byte[] data -> builder.append("<data>").append(Base64.getEncoder().encodeToString(data)).append("</data>");
+            default -> throw new IllegalArgumentException("Unsupported property list type: " + value.getClass());
+        }
+        builder.append('\n');
+    }
+
+    private static StringBuilder appendEscaped(StringBuilder builder, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<' -> builder.append("&lt;");
+                case '>' -> builder.append("&gt;");
+                case '&' -> builder.append("&amp;");
+                default -> builder.append(c);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Parses an integer that is stored as either a number or a hexadecimal string, like {@code ApChipID}
+     * in build manifests.
+     */
+    static long toLong(Object value) {
+        if (value instanceof Long l) {
+            return l;
+        } else if (value instanceof BigInteger i) {
+            return i.longValue();
+        }
+        String s = value.toString().trim();
+        return s.startsWith("0x") || s.startsWith("0X") ? Long.parseUnsignedLong(s.substring(2), 16) : Long.parseLong(s);
+    }
+
+    private Plist() {
+    }
+}
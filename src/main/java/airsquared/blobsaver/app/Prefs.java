@@ -26,6 +26,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
@@ -151,6 +152,56 @@ public final class Prefs {
         appPrefs.putBoolean("Always save new blobs", alwaysSaveNewBlobs);
     }
 
+    /**
+     * @return the maximum number of blobs to request at once. Saving for one device saves that many versions in
+     * parallel, and background saving saves that many devices in parallel, one version at a time each.
+     */
+    public static int getMaxParallelSaves() {
+        return appPrefs.getInt("Max parallel saves", 4);
+    }
+
+    public static void setMaxParallelSaves(int maxParallelSaves) {
+        appPrefs.putInt("Max parallel saves", maxParallelSaves);
+    }
+
+    public static TSS.Engine getTSSEngine() {
+        return TSS.Engine.valueOf(appPrefs.get("TSS engine", TSS.Engine.TSSCHECKER.name()));
+    }
+
+    public static void setTSSEngine(TSS.Engine engine) {
+        appPrefs.put("TSS engine", engine.name());
+    }
+
+    /**
+     * @return a directory of {@code <identifier>.json} files in the ipsw.me format, used as another firmware catalog
+     */
+    public static Optional<Path> getLocalFirmwareCatalog() {
+        return Optional.ofNullable(appPrefs.get("Local firmware catalog", null)).map(Path::of);
+    }
+
+    public static void setLocalFirmwareCatalog(Path directory) {
+        if (directory == null) {
+            appPrefs.remove("Local firmware catalog");
+        } else {
+            appPrefs.put("Local firmware catalog", directory.toString());
+        }
+    }
+
+    /**
+     * @return a directory of IPSWs and build manifests to read build manifests from instead of downloading them
+     */
+    public static Optional<Path> getIPSWLibrary() {
+        return Optional.ofNullable(appPrefs.get("IPSW library", null)).map(Path::of);
+    }
+
+    public static void setIPSWLibrary(Path directory) {
+        if (directory == null) {
+            appPrefs.remove("IPSW library");
+        } else {
+            appPrefs.put("IPSW library", directory.toString());
+        }
+    }
+
     private static Stream<SavedDevice> savedDevices() {
         try {
             return Arrays.stream(savedDevicesPrefs.childrenNames()).map(SavedDevice::new);
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether to retry requests that failed for reasons that are likely to go away, such as the TSS server being
+ * overloaded on release days.
+ * <p>
+ * Retries are delayed with exponential backoff and full jitter, and limited both per request and by a budget that is
+ * shared by everything using the same policy (one {@link TSS} task, or one {@link TSSBatch} run). Each endpoint also
+ * has a circuit breaker shared by the whole process: after {@value #failureThreshold} consecutive failures, requests
+ * to it fail immediately for {@link #openDuration}, and then a single request is let through to test it.
+ */
+final class RetryPolicy {
+
+    static final int maxAttempts = 4;
+    static final int defaultRetryBudget = 10;
+    private static final Duration baseDelay = Duration.ofSeconds(2);
+    private static final Duration maxDelay = Duration.ofSeconds(30);
+
+    private static final int failureThreshold = 5;
+    private static final Duration openDuration = Duration.ofMinutes(1);
+
+    private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger retryBudget;
+
+    /**
+     * @param retryBudget the total number of retries allowed
+     */
+    RetryPolicy(int retryBudget) {
+        this.retryBudget = new AtomicInteger(retryBudget);
+    }
+
+    /**
+     * @return false if the endpoint's circuit breaker is open, and the request should not be made
+     */
+    boolean allowRequest(String endpoint) {
+        return circuitBreaker(endpoint).allowRequest();
+    }
+
+    /**
+     * Records that a request to the endpoint got a response, even if the response was an error that is not transient.
+     */
+    void onSuccess(String endpoint) {
+        circuitBreaker(endpoint).onSuccess();
+    }
+
+    /**
+     * Records that a request to the endpoint failed transiently or got no response.
+     */
+    void onFailure(String endpoint) {
+        circuitBreaker(endpoint).onFailure();
+    }
+
+    /**
+     * Records that a request to the endpoint ended without an outcome, for example because it was cancelled or
+     * tsschecker failed to start. If it was the trial request, another one is let through.
+     */
+    void onAbandoned(String endpoint) {
+        circuitBreaker(endpoint).onAbandoned();
+    }
+
+    /**
+     * @param attempt  the number of the attempt that failed, starting at 1
+     * @param deadline the time by which the request has to be done
+     * @return how long to wait before retrying, or null if the request should not be retried
+     */
+    Duration retryDelay(int attempt, Instant deadline) {
+        if (attempt >= maxAttempts) {
+            return null;
+        }
+        var delay = delay(attempt);
+        if (Instant.now().plus(delay).isAfter(deadline)) {
+            return null;
+        }
+        if (retryBudget.getAndUpdate(budget -> Math.max(budget - 1, 0)) <= 0) {
+            System.out.println("Retry budget exhausted");
+            return null;
+        }
+        return delay;
+    }
+
+    /**
+     * @return a random delay between zero and the exponential backoff for the attempt
+     */
+    static Duration delay(int attempt) {
+        long backoff = Math.min(baseDelay.toMillis() << Math.min(attempt - 1, 16), maxDelay.toMillis());
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(backoff + 1));
+    }
+
+    private static CircuitBreaker circuitBreaker(String endpoint) {
+        return circuitBreakers.computeIfAbsent(endpoint, e -> new CircuitBreaker(e, openDuration));
+    }
+
+    static final class CircuitBreaker {
+        private final String endpoint;
+        private final Duration openDuration;
+        private int consecutiveFailures;
+        /**
+         * Null if the circuit is closed
+         */
+        private Instant openUntil;
+        private boolean trialInProgress;
+
+        CircuitBreaker(String endpoint, Duration openDuration) {
+            this.endpoint = endpoint;
+            this.openDuration = openDuration;
+        }
+
+        synchronized boolean allowRequest() {
+            if (openUntil == null) {
+                return true;
+            }
+            if (Instant.now().isBefore(openUntil) || trialInProgress) {
+                return false;
+            }
+            trialInProgress = true; // half-open: let one request through
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            openUntil = null;
+            trialInProgress = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (trialInProgress || consecutiveFailures >= failureThreshold) {
+                if (openUntil == null) {
+                    System.out.println("Too many failures for " + endpoint + "; pausing requests for " + openDuration);
+                }
+                openUntil = Instant.now().plus(openDuration);
+                trialInProgress = false;
+            }
+        }
+
+        synchronized void onAbandoned() {
+            trialInProgress = false;
+        }
+    }
+}
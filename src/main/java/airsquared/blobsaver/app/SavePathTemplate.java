@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * A save path containing {@code ${Variable}} placeholders, parsed once into literal and variable segments.
+ * <p>
+ * Variables that only depend on the device can be substituted ahead of time with {@link #bind(Map)}, so that
+ * rendering the path for each version only has to fill in the version variables.
+ */
+final class SavePathTemplate {
+
+    enum Variable {
+        NAME("Name"),
+        DEVICE_IDENTIFIER("DeviceIdentifier"),
+        BOARD_CONFIG("BoardConfig"),
+        APNONCE("APNonce"),
+        GENERATOR("Generator"),
+        DEVICE_MODEL("DeviceModel"),
+        ECID("ECID"),
+        FULL_VERSION_STRING("FullVersionString"),
+        BUILD_ID("BuildID"),
+        MAJOR_VERSION("MajorVersion");
+
+        private static final Map<String, Variable> byName = Arrays.stream(values())
+                .collect(Collectors.toUnmodifiableMap(v -> v.name, v -> v));
+
+        final String name;
+
+        Variable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return "${" + name + "}";
+        }
+    }
+
+    private static final Map<String, SavePathTemplate> compiled = new ConcurrentHashMap<>();
+
+    /**
+     * Each segment is either a {@link String} literal or a {@link Variable}.
+     */
+    private final Object[] segments;
+
+    private SavePathTemplate(Object[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the template contains a variable that doesn't exist
+     */
+    static SavePathTemplate compile(String template) {
+        var result = compiled.get(template);
+        if (result == null) {
+            result = parse(template);
+            compiled.putIfAbsent(template, result);
+        }
+        return result;
+    }
+
+    private static SavePathTemplate parse(String template) {
+        var segments = new ArrayList<>();
+        var literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            int start = template.indexOf("${", i);
+            int end = start < 0 ? -1 : template.indexOf('}', start + 2);
+            if (end < 0) { // no more variables; an unterminated "${" is kept as is
+                literal.append(template, i, template.length());
+                break;
+            }
+            var variable = Variable.byName.get(template.substring(start + 2, end));
+            if (variable == null) {
+                throw new IllegalArgumentException("Unknown variable " + template.substring(start, end + 1) + " in save path");
+            }
+            literal.append(template, i, start);
+            if (!literal.isEmpty()) {
+                segments.add(literal.toString());
+                literal.setLength(0);
+            }
+            segments.add(variable);
+            i = end + 1;
+        }
+        if (!literal.isEmpty()) {
+            segments.add(literal.toString());
+        }
+        return new SavePathTemplate(segments.toArray());
+    }
+
+    /**
+     * @return a template with the given variables replaced by their values; the other variables are left as is
+     */
+    SavePathTemplate bind(Map<Variable, String> values) {
+        var bound = new ArrayList<>(segments.length);
+        var literal = new StringBuilder();
+        for (Object segment : segments) {
+            if (segment instanceof Variable v && !values.containsKey(v)) {
+                if (!literal.isEmpty()) {
+                    bound.add(literal.toString());
+                    literal.setLength(0);
+                }
+                bound.add(v);
+            } else {
+                literal.append(segment instanceof Variable v ? values.get(v) : segment);
+            }
+        }
+        if (!literal.isEmpty()) {
+            bound.add(literal.toString());
+        }
+        return new SavePathTemplate(bound.toArray());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the template contains a variable that isn't in {@code values}
+     */
+    String render(Map<Variable, String> values) {
+        if (segments.length == 1 && segments[0] instanceof String s) {
+            return s;
+        }
+        var builder = new StringBuilder();
+        for (Object segment : segments) {
+            if (segment instanceof Variable v) {
+                var value = values.get(v);
+                if (value == null) {
+                    throw new IllegalArgumentException("No value for " + v);
+                }
+                builder.append(value);
+            } else {
+                builder.append((String) segment);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the template with variables written as {@code ${Variable}}
+     */
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        for (Object segment : segments) {
+            builder.append(segment);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+
+/**
+ * An immutable snapshot of the signed versions for every identifier used by a set of saved devices.
+ * <p>
+ * Neither ipsw.me nor BetaHub has an endpoint for many identifiers at once, so a refresh fetches each distinct
+ * catalog once, a few at a time, through the {@link SigningStatusCache}. Catalogs that are still fresh there don't
+ * need a request, and the rest are conditional requests through the {@link HttpCache}. Devices sharing an identifier
+ * never cause more than one request.
+ */
+final class SigningMatrix {
+
+    /**
+     * At most this many catalogs are fetched at once, to stay under the APIs' rate limits
+     */
+    private static final int maxConcurrentRequests = 4;
+
+    private static final SigningMatrix empty = new SigningMatrix(Instant.EPOCH, Map.of(), Map.of());
+
+    private static volatile SigningMatrix latest = empty;
+
+    private record Catalog(String deviceIdentifier, boolean betas) {
+        List<Utils.IOSVersion> fetch() throws IOException {
+            return betas ? SigningStatusCache.signedBetas(deviceIdentifier)
+                    : SigningStatusCache.signedFirmwares(deviceIdentifier);
+        }
+    }
+
+    private final Instant refreshed;
+    private final Map<Catalog, List<Utils.IOSVersion>> versions;
+    private final Map<Catalog, Throwable> failures;
+
+    private SigningMatrix(Instant refreshed, Map<Catalog, List<Utils.IOSVersion>> versions, Map<Catalog, Throwable> failures) {
+        this.refreshed = refreshed;
+        this.versions = versions;
+        this.failures = failures;
+    }
+
+    /**
+     * Fetches the signed versions for every identifier used by the devices, and the signed betas for identifiers
+     * of devices that include betas. The result also becomes the {@link #latest()} snapshot.
+     */
+    static SigningMatrix refresh(Collection<Prefs.SavedDevice> devices) throws InterruptedException {
+        var catalogs = new LinkedHashSet<Catalog>();
+        for (Prefs.SavedDevice device : devices) {
+            catalogs.add(new Catalog(device.getIdentifier(), false));
+            if (device.doesIncludeBetas()) {
+                catalogs.add(new Catalog(device.getIdentifier(), true));
+            }
+        }
+
+        var permits = new Semaphore(maxConcurrentRequests);
+        var versions = new HashMap<Catalog, List<Utils.IOSVersion>>();
+        var failures = new HashMap<Catalog, Throwable>();
+        try (var scope = new StructuredTaskScope<List<Utils.IOSVersion>>()) {
+            var subtasks = new LinkedHashMap<Catalog, StructuredTaskScope.Subtask<List<Utils.IOSVersion>>>();
+            for (Catalog catalog : catalogs) {
+                subtasks.put(catalog, scope.fork(() -> {
+                    permits.acquire();
+                    try {
+                        return catalog.fetch();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            scope.join();
+
+            subtasks.forEach((catalog, subtask) -> {
+                if (subtask.state() == StructuredTaskScope.Subtask.State.SUCCESS) {
+                    versions.put(catalog, subtask.get());
+                } else {
+                    System.err.println("Unable to fetch signing status for " + catalog + ": " + subtask.exception());
+                    failures.put(catalog, subtask.exception());
+                }
+            });
+        }
+        System.out.println("Refreshed signing status for " + versions.size() + " of " + catalogs.size() + " catalogs");
+
+        var refreshed = Instant.now();
+        // failures aren't published, so that later lookups try again
+        latest = new SigningMatrix(refreshed, Map.copyOf(versions), Map.of());
+        return new SigningMatrix(refreshed, Map.copyOf(versions), Map.copyOf(failures));
+    }
+
+    /**
+     * @return the snapshot from the last refresh, or an empty one if it is older than {@link SigningStatusCache#ttl}
+     */
+    static SigningMatrix latest() {
+        var matrix = latest;
+        return matrix.refreshed.plus(SigningStatusCache.ttl).isAfter(Instant.now()) ? matrix : empty;
+    }
+
+    /**
+     * Removes the signing status for the device from the latest snapshot and from the {@link SigningStatusCache}.
+     */
+    static synchronized void invalidate(String deviceIdentifier) {
+        SigningStatusCache.invalidate(deviceIdentifier);
+        var matrix = latest;
+        var versions = new HashMap<>(matrix.versions);
+        if (versions.keySet().removeIf(catalog -> catalog.deviceIdentifier().equals(deviceIdentifier))) {
+            latest = new SigningMatrix(matrix.refreshed, Map.copyOf(versions), matrix.failures);
+        }
+    }
+
+    /**
+     * @return the signed versions from this snapshot, or from the {@link SigningStatusCache} if the snapshot doesn't
+     * include the identifier
+     * @throws IOException if fetching the catalog failed during the refresh
+     */
+    List<Utils.IOSVersion> signedFirmwares(String deviceIdentifier) throws IOException {
+        return get(new Catalog(deviceIdentifier, false));
+    }
+
+    /**
+     * @see #signedFirmwares(String)
+     */
+    List<Utils.IOSVersion> signedBetas(String deviceIdentifier) throws IOException {
+        return get(new Catalog(deviceIdentifier, true));
+    }
+
+    private List<Utils.IOSVersion> get(Catalog catalog) throws IOException {
+        var result = versions.get(catalog);
+        if (result != null) {
+            return result;
+        }
+        switch (failures.get(catalog)) {
+            case null -> {
+                return catalog.fetch();
+            }
+            case IOException e -> throw e;
+            case RuntimeException e -> throw e;
+            case Error e -> throw e;
+            case Throwable t -> throw new IOException(t);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Cache of the signed versions for each device identifier, shared between the GUI, CLI, and background processes.
+ * <p>
+ * Entries expire after {@link #ttl}, and are invalidated early when saving blobs reports that a version is not
+ * being signed.
+ */
+final class SigningStatusCache {
+
+    static final Duration ttl = Duration.ofMinutes(60);
+
+    private static final Path file = Utils.getCacheDirectory().resolve("signing-status.json");
+
+    private record Entry(long fetched, List<Utils.IOSVersion> versions) {
+        boolean isFresh() {
+            return Instant.ofEpochMilli(fetched).plus(ttl).isAfter(Instant.now());
+        }
+    }
+
+    interface Fetcher {
+        List<Utils.IOSVersion> fetch() throws IOException;
+    }
+
+    /**
+     * Keyed by device identifier for releases, and by device identifier followed by {@code " betas"} for betas
+     */
+    private static Map<String, Entry> entries;
+
+    /**
+     * The modification time of the file when it was last read or written by this process
+     */
+    private static FileTime loadedModifiedTime;
+
+    static List<Utils.IOSVersion> signedFirmwares(String deviceIdentifier) throws IOException {
+        return get(deviceIdentifier, () -> Utils.getSignedFirmwares(deviceIdentifier).toList());
+    }
+
+    static List<Utils.IOSVersion> signedBetas(String deviceIdentifier) throws IOException {
+        return get(deviceIdentifier + " betas", () -> Utils.getSignedBetas(deviceIdentifier).toList());
+    }
+
+    /**
+     * Removes the signing status for the device, so that the next request fetches it again.
+     */
+    static synchronized void invalidate(String deviceIdentifier) {
+        load();
+        if (entries.remove(deviceIdentifier) != null | entries.remove(deviceIdentifier + " betas") != null) {
+            System.out.println("Invalidated signing status for " + deviceIdentifier);
+            save();
+        }
+    }
+
+    /**
+     * @param key the device identifier, or the device identifier followed by {@code " betas"}
+     */
+    static List<Utils.IOSVersion> get(String key, Fetcher fetcher) throws IOException {
+        synchronized (SigningStatusCache.class) {
+            load();
+            var entry = entries.get(key);
+            if (entry != null && entry.isFresh()) {
+                return entry.versions();
+            }
+        }
+        var versions = fetcher.fetch(); // don't hold the lock while waiting for the network
+        synchronized (SigningStatusCache.class) {
+            load();
+            entries.put(key, new Entry(System.currentTimeMillis(), versions));
+            save();
+        }
+        return versions;
+    }
+
+    /**
+     * Reads the entries from disk if the file was changed by another process since it was last read.
+     */
+    private static void load() {
+        FileTime modifiedTime;
+        try {
+            modifiedTime = Files.getLastModifiedTime(file);
+        } catch (IOException e) { // doesn't exist yet
+            modifiedTime = null;
+        }
+        if (entries != null && Objects.equals(modifiedTime, loadedModifiedTime)) {
+            return;
+        }
+        entries = new HashMap<>();
+        loadedModifiedTime = modifiedTime;
+        if (modifiedTime == null) {
+            return;
+        }
+        try {
+            Map<String, Entry> read = new Gson().fromJson(Files.readString(file), new TypeToken<Map<String, Entry>>() {}.getType());
+            if (read != null) {
+                entries.putAll(read);
+            }
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Unable to read signing status cache; ignoring it");
+            e.printStackTrace();
+        }
+    }
+
+    private static void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), "signing-status", ".tmp");
+            Files.writeString(temp, new Gson().toJson(entries));
+            Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+            loadedModifiedTime = Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
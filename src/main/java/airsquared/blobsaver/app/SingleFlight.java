@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent loads of the same key: while one thread is loading a key, other threads asking for it wait
+ * for that load and share its result or failure, instead of starting their own. If the loading thread is
+ * interrupted, the waiting threads load it again themselves, since they didn't ask for it to be cancelled.
+ * <p>
+ * Nothing is kept once a load finishes, so a later call loads again. Results that should be kept belong in a cache
+ * behind the loader, like {@link HttpCache} or {@link ManifestCache}.
+ */
+final class SingleFlight<K, V> {
+
+    interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    V get(K key, Loader<V> loader) throws IOException {
+        while (true) {
+            var future = new CompletableFuture<V>();
+            var existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                return load(key, future, loader);
+            }
+            try {
+                return await(existing);
+            } catch (CancellationException e) {
+                // the thread that was loading it was interrupted, which doesn't concern this one, so load it again
+            }
+        }
+    }
+
+    /**
+     * If the loader fails with this thread's interrupt status set, the load was cancelled rather than failed, so
+     * the threads waiting for it are woken up to try again instead of sharing the failure.
+     */
+    private V load(K key, CompletableFuture<V> future, Loader<V> loader) throws IOException {
+        V value;
+        try {
+            value = loader.load();
+        } catch (Throwable e) { // including errors, so that the threads waiting for it don't wait forever
+            inFlight.remove(key, future);
+            if (Thread.currentThread().isInterrupted()) {
+                future.cancel(false);
+            } else {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        }
+        inFlight.remove(key, future);
+        future.complete(value);
+        return value;
+    }
+
+    /**
+     * Waits for the future, rethrowing its failure as it was thrown by the loader.
+     */
+    static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case IOException io -> throw io;
+                case RuntimeException r -> throw r;
+                case Error error -> throw error;
+                default -> throw new UncheckedIOException(new IOException(e.getCause()));
+            }
+        }
+    }
+}
@@ -24,27 +24,40 @@ import javafx.concurrent.Task;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static airsquared.blobsaver.app.Utils.containsIgnoreCase;
 import static airsquared.blobsaver.app.Utils.executeProgram;
-import static airsquared.blobsaver.app.Utils.extractBuildManifest;
 import static airsquared.blobsaver.app.Utils.getFirmwareList;
-import static airsquared.blobsaver.app.Utils.getSignedBetas;
-import static airsquared.blobsaver.app.Utils.getSignedFirmwares;
 import static airsquared.blobsaver.app.Utils.isNumeric;
 
 public class TSS extends Task<String> {
@@ -52,10 +65,50 @@ public class TSS extends Task<String> {
     private static final Pattern ipswURLPattern = Pattern.compile("(https?://|file:/).*\\.(ipsw|plist)");
     private static final Pattern versionPattern = Pattern.compile("[0-9]+\\.[0-9]+\\.?[0-9]*(?<!\\.)");
 
+    /**
+     * Maximum number of build manifests to extract ahead of the version currently being saved
+     */
+    private static final int manifestLookahead = 2;
+
+    /**
+     * How long a single tsschecker run or TSS request may take
+     */
+    private static final Duration tssTimeout = Duration.ofSeconds(120);
+
+    /**
+     * How long saving blobs for a device may take in total
+     */
+    static final Duration saveTimeout = Duration.ofMinutes(30);
+
+    private static final TSSClient tssClient = new TSSClient(TSSClient.appleEndpoint);
+
+    /**
+     * The endpoint that both tsschecker and {@link #tssClient} request blobs from, for {@link RetryPolicy}
+     */
+    private static final String tssEndpoint = TSSClient.appleEndpoint.getHost();
+
+    /**
+     * How blobs are requested from the TSS server
+     */
+    public enum Engine {
+        /**
+         * Run tsschecker once for each version
+         */
+        TSSCHECKER,
+        /**
+         * Request blobs in-process with {@link TSSClient}. Falls back to tsschecker for devices it does not support.
+         */
+        BUILTIN
+    }
+
     private final String name;
     private final String deviceIdentifier;
     private final String ecid;
-    private final String savePath;
+    private final String rawSavePath;
+    /**
+     * Compiled in {@link #checkInputs()}
+     */
+    private SavePathTemplate savePath;
 
     private final String boardConfig;
 
@@ -67,10 +120,93 @@ public class TSS extends Task<String> {
 
     private final boolean saveToTSSSaver, saveToSHSHHost;
 
+    private final int parallelism;
+
+    private final Engine engine;
+
+    private final Sources sources;
+
+    /**
+     * When the whole task has to be done by. If null, it is set from {@link #saveTimeout} when the task starts.
+     */
+    private Instant deadline;
+
+    private final RetryPolicy retryPolicy;
+
+    enum Outcome {
+        SAVED,
+        /**
+         * Not actually being signed, or a developer beta
+         */
+        SKIPPED,
+        TIMED_OUT,
+        /**
+         * Only used for {@linkplain #claimedRequests claimed requests}, when the task that claimed it failed
+         */
+        FAILED
+    }
+
+    /**
+     * Requests that have been claimed by any task sharing this map, each with the outcome of saving it once the task
+     * that claimed it is done; null if requests are not shared
+     */
+    private final Map<Request, CompletableFuture<Outcome>> claimedRequests;
+
+    /**
+     * Where firmware catalogs and build manifests come from. {@link TSSBatch} shares one between many tasks so that
+     * each catalog is fetched and each manifest is extracted only once.
+     */
+    interface Sources {
+        Stream<Utils.IOSVersion> signedFirmwares(String deviceIdentifier) throws IOException;
+
+        Stream<Utils.IOSVersion> signedBetas(String deviceIdentifier) throws IOException;
+
+        Path manifest(String deviceIdentifier, Utils.IOSVersion version) throws IOException;
+
+        /**
+         * Called when a manifest returned by {@link #manifest(String, Utils.IOSVersion)} is no longer needed
+         */
+        void release(Path manifest);
+    }
+
+    static final Sources defaultSources = new Sources() {
+        @Override
+        public Stream<Utils.IOSVersion> signedFirmwares(String deviceIdentifier) throws IOException {
+            return SigningMatrix.latest().signedFirmwares(deviceIdentifier).stream();
+        }
+
+        @Override
+        public Stream<Utils.IOSVersion> signedBetas(String deviceIdentifier) throws IOException {
+            return SigningMatrix.latest().signedBetas(deviceIdentifier).stream();
+        }
+
+        @Override
+        public Path manifest(String deviceIdentifier, Utils.IOSVersion version) throws IOException {
+            if (version.buildid() != null) {
+                Path local = IPSWLibrary.find(deviceIdentifier, version.buildid());
+                if (local != null) {
+                    return local;
+                }
+            }
+            return ManifestCache.get(version.ipswURL(), version.buildid());
+        }
+
+        @Override
+        public void release(Path manifest) {
+            releaseManifest(manifest);
+        }
+    };
+
+    /**
+     * Identifies a blob request; two requests with the same key would save the same blob to the same place.
+     */
+    record Request(long ecid, String apnonce, String generator, String buildid, Path saveDirectory) {
+    }
+
     /**
      * Private constructor; use {@link TSS.Builder} instead
      */
-    private TSS(String name, String deviceIdentifier, String ecid, String savePath, String boardConfig, boolean includeBetas, String manualVersion, String manualIpswURL, String apnonce, String generator, boolean saveToTSSSaver, boolean saveToSHSHHost) {
+    private TSS(String name, String deviceIdentifier, String ecid, String savePath, String boardConfig, boolean includeBetas, String manualVersion, String manualIpswURL, String apnonce, String generator, boolean saveToTSSSaver, boolean saveToSHSHHost, int parallelism, Engine engine, Sources sources, Map<Request, CompletableFuture<Outcome>> claimedRequests, Instant deadline, RetryPolicy retryPolicy) {
         this.name = name;
         this.deviceIdentifier = deviceIdentifier;
         this.ecid = ecid;
@@ -82,7 +218,13 @@ public class TSS extends Task<String> {
         this.generator = generator;
         this.saveToTSSSaver = saveToTSSSaver;
         this.saveToSHSHHost = saveToSHSHHost;
-        this.savePath = parsePath(savePath);
+        this.parallelism = parallelism;
+        this.engine = engine;
+        this.sources = sources;
+        this.claimedRequests = claimedRequests;
+        this.deadline = deadline;
+        this.retryPolicy = retryPolicy;
+        this.rawSavePath = savePath;
     }
 
     /**
@@ -91,45 +233,117 @@ public class TSS extends Task<String> {
      */
     @Override
     protected String call() throws TSSException {
+        if (deadline == null) {
+            deadline = Instant.now().plus(saveTimeout);
+        }
         checkInputs();
 
         List<Utils.IOSVersion> iosVersions = getIOSVersions();
         System.out.println("iosVersions = " + iosVersions);
         ArrayList<String> args = constructArgs();
 
-        var alreadySaved = new StringJoiner(", ");
-        var newlySaved = new StringJoiner(", ");
-        for (Utils.IOSVersion iosVersion : iosVersions) {
-            if (!Prefs.getAlwaysSaveNewBlobs() && checkAlreadySaved(iosVersion)) {
-                alreadySaved.add(iosVersion.versionString());
-                continue;
+        // the uploads don't depend on the blobs saved locally, so they run while those are saved
+        CompletableFuture<String> tssSaverUpload = saveToTSSSaver ? saveBlobsTSSSaver() : null;
+        CompletableFuture<String> shshHostUpload = saveToSHSHHost ? saveBlobsSHSHHost() : null;
+
+        var responseBuilder = new StringBuilder();
+        try {
+            saveBlobs(iosVersions, args, responseBuilder);
+        } catch (TSSException | RuntimeException e) {
+            // the task failed, so stop the uploads if their requests haven't been sent yet
+            for (var upload : new CompletableFuture<?>[]{tssSaverUpload, shshHostUpload}) {
+                if (upload != null) {
+                    upload.cancel(true);
+                }
             }
+            throw e;
+        }
 
-            try {
-                saveFor(iosVersion, args);
-            } catch (TSSException e) {
-                if (manualVersion == null && manualIpswURL == null) {
-                    var msg = e.getMessage();
-                    if (msg.contains("not being signed")) {
-                        System.err.println("Warning: ignoring unsigned version; API is likely out of date");
-                        continue; // ignore not being signed (API might not be updated)
-                    }
-                    if ((msg.contains("Failed to load manifest") || msg.contains("Unable to extract BuildManifest"))
-                            && includeBetas
-                            && containsIgnoreCase(iosVersion.versionString(), "beta")
-                            && iosVersion.ipswURL().contains("developer.apple")) {
-                        System.err.println("Warning: ignoring developer beta");
+        if (saveToTSSSaver || saveToSHSHHost) {
+            responseBuilder.append("\n\n");
+        }
+        if (saveToTSSSaver) {
+            responseBuilder.append(awaitUpload(tssSaverUpload));
+        }
+        if (saveToSHSHHost) {
+            if (saveToTSSSaver) {
+                responseBuilder.append("\n");
+            }
+            responseBuilder.append(awaitUpload(shshHostUpload));
+        }
+
+        Analytics.saveBlobs();
+        return responseBuilder.toString();
+    }
+
+    /**
+     * Saves the blobs locally, appending a description of what was saved to {@code responseBuilder}
+     */
+    private void saveBlobs(List<Utils.IOSVersion> iosVersions, ArrayList<String> args, StringBuilder responseBuilder) throws TSSException {
+        var alreadySaved = new StringJoiner(", ");
+        var toSave = new ArrayList<Utils.IOSVersion>(iosVersions.size());
+        var claims = new ArrayList<CompletableFuture<Outcome>>(iosVersions.size()); // null for unshared requests
+        var claimedByOthers = new LinkedHashMap<Utils.IOSVersion, CompletableFuture<Outcome>>();
+        List<Outcome> outcomes = null;
+        try {
+            for (Utils.IOSVersion iosVersion : iosVersions) {
+                if (!Prefs.getAlwaysSaveNewBlobs() && checkAlreadySaved(iosVersion)) {
+                    alreadySaved.add(iosVersion.versionString());
+                    continue;
+                }
+                CompletableFuture<Outcome> claim = null;
+                if (claimedRequests != null) {
+                    claim = new CompletableFuture<>();
+                    var existing = claimedRequests.putIfAbsent(request(iosVersion), claim);
+                    if (existing != null) {
+                        System.out.println("Already being saved by another device: " + iosVersion);
+                        claimedByOthers.put(iosVersion, existing);
                         continue;
                     }
                 }
-                throw e;
+                toSave.add(iosVersion);
+                claims.add(claim);
+            }
+            outcomes = new ArrayList<>(saveAll(toSave, args));
+        } finally { // devices waiting for these requests save them themselves if this one failed
+            for (int i = 0; i < claims.size(); i++) {
+                if (claims.get(i) != null) {
+                    claims.get(i).complete(outcomes != null ? outcomes.get(i) : Outcome.FAILED);
+                }
             }
+        }
+        // only wait for the other devices once this one is done, so that two devices never wait for each other
+        for (var claimed : claimedByOthers.entrySet()) {
+            switch (awaitClaim(claimed.getValue())) {
+                case SAVED -> alreadySaved.add(claimed.getKey().versionString());
+                case SKIPPED -> {
+                }
+                case TIMED_OUT, FAILED -> {
+                    System.out.println("Another device failed to save " + claimed.getKey() + "; saving it for this device");
+                    toSave.add(claimed.getKey());
+                    outcomes.addAll(saveAll(List.of(claimed.getKey()), args));
+                }
+            }
+        }
 
-            if (iosVersion.versionString() != null) {
-                newlySaved.add(iosVersion.versionString());
+        var newlySaved = new StringJoiner(", ");
+        var timedOut = new StringJoiner(", ");
+        for (int i = 0; i < toSave.size(); i++) {
+            String versionString = toSave.get(i).versionString();
+            switch (outcomes.get(i)) {
+                case SAVED -> {
+                    if (versionString != null) {
+                        newlySaved.add(versionString);
+                    }
+                }
+                case TIMED_OUT -> timedOut.add(Utils.defIfNull(versionString, toSave.get(i).ipswURL()));
+                case SKIPPED, FAILED -> {
+                }
             }
         }
-        var responseBuilder = new StringBuilder();
+        if (timedOut.length() > 0 && !outcomes.contains(Outcome.SAVED) && alreadySaved.length() == 0) {
+            throw new TSSException("Saving blobs timed out. Check your internet connection or try again later.", false);
+        }
         if (manualIpswURL != null || newlySaved.length() > 0) {
             responseBuilder.append("Successfully saved blobs in\n").append(savePath);
             if (newlySaved.length() > 0) {
@@ -142,118 +356,414 @@ public class TSS extends Task<String> {
         if (alreadySaved.length() > 0) {
             responseBuilder.append("Already saved for ").append(alreadySaved);
         }
-
-        if (saveToTSSSaver || saveToSHSHHost) {
-            responseBuilder.append("\n\n");
+        if (timedOut.length() > 0) {
+            responseBuilder.append("\n\nTimed out for ").append(timedOut);
         }
-        if (saveToTSSSaver) {
-            try {
-                saveBlobsTSSSaver(responseBuilder);
-            } catch (Exception e) {
-                e.printStackTrace();
-                responseBuilder.append("Error encountered while trying to save blobs to TSS Saver: ").append(e.getMessage());
-            }
-        }
-        if (saveToSHSHHost) {
-            try {
-                saveBlobsSHSHHost(responseBuilder);
-            } catch (Exception e) {
-                e.printStackTrace();
-                responseBuilder.append("Error encountered while trying to save blobs to SHSH Host: ").append(e.getMessage());
-            }
+    }
+
+    private static Outcome awaitClaim(CompletableFuture<Outcome> claim) throws TSSException {
+        try {
+            return claim.get();
+        } catch (InterruptedException e) {
+            throw new TSSException("Saving blobs was cancelled.", false, e);
+        } catch (ExecutionException e) {
+            throw new AssertionError(e); // claims are never completed exceptionally
         }
+    }
 
-        Analytics.saveBlobs();
-        return responseBuilder.toString();
+    private static String awaitUpload(CompletableFuture<String> upload) throws TSSException {
+        try {
+            return upload.get();
+        } catch (InterruptedException e) {
+            throw new TSSException("Saving blobs was cancelled.", false, e);
+        } catch (ExecutionException e) { // shouldn't happen, errors are turned into messages
+            throw new TSSException("An unknown error occurred.", true, e);
+        }
     }
 
     private boolean checkAlreadySaved(Utils.IOSVersion ios) {
-        if (ios.versionString() == null || apnonce == null) {
+        var key = blobIndexKey(ios);
+        if (key == null) {
             return false;
         }
-        var versionStringOnly = ios.versionString().trim().replaceFirst(" .*", ""); // strip out 'beta' labels
-        // https://github.com/1Conan/tsschecker/blob/0bc6174c3c2f77a0de525b71e7d8ec0987f07aa1/tsschecker/tsschecker.c#L1262
-        String fileName = parseECID() + "_" + deviceIdentifier + "_" + getBoardConfig() + "_" + versionStringOnly + "-" + ios.buildid() + "_" + apnonce + ".shsh2";
-
-        if (Files.exists(Path.of(parsePathWithVersion(ios), fileName))) {
-            System.out.println("Already Saved: " + fileName);
+        if (BlobIndex.of(Path.of(parsePathWithVersion(ios))).contains(key)) {
+            System.out.println("Already Saved: " + key.fileName());
             return true;
         }
         return false;
     }
 
+    /**
+     * @return the key that identifies the blob for this version, or null if it can't be determined
+     */
+    private BlobIndex.Key blobIndexKey(Utils.IOSVersion ios) {
+        if (ios.versionString() == null || apnonce == null) {
+            return null;
+        }
+        var versionStringOnly = ios.versionString().trim().replaceFirst(" .*", ""); // strip out 'beta' labels
+        return new BlobIndex.Key(parseECID(), deviceIdentifier, getBoardConfig(), versionStringOnly, ios.buildid(), apnonce);
+    }
+
+    private Request request(Utils.IOSVersion ios) {
+        return new Request(parseECID(), apnonce, generator, ios.buildid(),
+                Path.of(parsePathWithVersion(ios)).toAbsolutePath().normalize());
+    }
+
     private long parseECID() {
         return isNumeric(ecid) ? Long.parseLong(ecid)
                 : Long.parseLong(ecid.startsWith("0x") ? ecid.substring(2) : ecid, 16);
     }
 
-    private String parsePath(String input) {
-        if (!input.contains("${")) return input;
-        String template = input;
-
-        var variables = Map.of("${Name}", Utils.defIfNull(name, "UnknownName"),
-                "${DeviceIdentifier}", deviceIdentifier,
-                "${BoardConfig}", getBoardConfig(),
-                "${APNonce}", Utils.defIfNull(apnonce, "UnknownAPNonce"),
-                "${Generator}", Utils.defIfNull(generator, "UnknownGenerator"),
-                "${DeviceModel}", Devices.identifierToModel(deviceIdentifier),
-                "${ECID}", ecid);
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            template = template.replace(entry.getKey(), entry.getValue());
+    /**
+     * @return the save path template with the variables that don't depend on the version substituted
+     */
+    private SavePathTemplate compileSavePath(String input) throws TSSException {
+        SavePathTemplate template;
+        try {
+            template = SavePathTemplate.compile(input);
+        } catch (IllegalArgumentException e) {
+            throw new TSSException(e.getMessage() + ". Make sure the variables are spelled correctly.", false, e);
         }
-        return template;
+
+        var variables = new EnumMap<SavePathTemplate.Variable, String>(SavePathTemplate.Variable.class);
+        variables.put(SavePathTemplate.Variable.NAME, Utils.defIfNull(name, "UnknownName"));
+        variables.put(SavePathTemplate.Variable.DEVICE_IDENTIFIER, deviceIdentifier);
+        variables.put(SavePathTemplate.Variable.BOARD_CONFIG, getBoardConfig());
+        variables.put(SavePathTemplate.Variable.APNONCE, Utils.defIfNull(apnonce, "UnknownAPNonce"));
+        variables.put(SavePathTemplate.Variable.GENERATOR, Utils.defIfNull(generator, "UnknownGenerator"));
+        variables.put(SavePathTemplate.Variable.DEVICE_MODEL, Devices.identifierToModel(deviceIdentifier));
+        variables.put(SavePathTemplate.Variable.ECID, ecid);
+        return template.bind(variables);
     }
 
     private String parsePathWithVersion(Utils.IOSVersion ios) {
-        if (!savePath.contains("${")) return savePath;
-        String template = savePath;
-
         var majorVersion = ios.versionString() != null ? ios.versionString().replaceFirst("\\..*", "") : "UnknownVersion";
-        var variables = Map.of(
-                "${FullVersionString}", Utils.defIfNull(ios.versionString(), "UnknownVersion"),
-                "${BuildID}", Utils.defIfNull(ios.buildid(), "UnknownBuildID"),
-                "${MajorVersion}", majorVersion);
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            template = template.replace(entry.getKey(), entry.getValue());
+        var variables = new EnumMap<SavePathTemplate.Variable, String>(SavePathTemplate.Variable.class);
+        variables.put(SavePathTemplate.Variable.FULL_VERSION_STRING, Utils.defIfNull(ios.versionString(), "UnknownVersion"));
+        variables.put(SavePathTemplate.Variable.BUILD_ID, Utils.defIfNull(ios.buildid(), "UnknownBuildID"));
+        variables.put(SavePathTemplate.Variable.MAJOR_VERSION, majorVersion);
+        return savePath.render(variables);
+    }
+
+    /**
+     * Saves blobs for every version in the list. If {@link #parallelism} is greater than one, up to that many
+     * versions are saved at once; if any of them fails, or this task is cancelled, the others are cancelled as well.
+     *
+     * @return the outcome for each version, in the same order as {@code iosVersions}
+     */
+    private List<Outcome> saveAll(List<Utils.IOSVersion> iosVersions, ArrayList<String> args) throws TSSException {
+        var outcomes = new ArrayList<Outcome>(iosVersions.size());
+        try (var manifests = new ManifestPipeline(iosVersions, deviceIdentifier, manifestLookahead, sources)) {
+            if (parallelism <= 1 || iosVersions.size() <= 1) {
+                for (int i = 0; i < iosVersions.size(); i++) {
+                    outcomes.add(trySaveFor(manifests, i, args));
+                }
+                return outcomes;
+            }
+
+            var permits = new Semaphore(parallelism);
+            try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                var subtasks = new ArrayList<StructuredTaskScope.Subtask<Outcome>>(iosVersions.size());
+                for (int i = 0; i < iosVersions.size(); i++) {
+                    final int index = i;
+                    var versionArgs = new ArrayList<>(args); // saveFor() modifies the arguments
+                    subtasks.add(scope.fork(() -> {
+                        permits.acquire();
+                        try {
+                            return trySaveFor(manifests, index, versionArgs);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                scope.join().throwIfFailed(e -> e instanceof TSSException t ? t
+                        : new TSSException("An unknown error occurred.", true, e));
+
+                for (var subtask : subtasks) {
+                    outcomes.add(subtask.get());
+                }
+                return outcomes;
+            } catch (InterruptedException e) {
+                throw new TSSException("Saving blobs was cancelled.", false, e);
+            }
         }
+    }
 
-        return template;
+    /**
+     * Saves blobs for the version, unless the deadline has already passed.
+     *
+     * @return whether the blobs were saved, skipped, or timed out
+     */
+    private Outcome trySaveFor(ManifestPipeline manifests, int index, ArrayList<String> args) throws TSSException {
+        Utils.IOSVersion iosVersion = manifests.version(index);
+        try {
+            if (Instant.now().isAfter(deadline)) {
+                throw new TimeoutException("Deadline passed before starting");
+            }
+            saveFor(manifests, index, args);
+            return Outcome.SAVED;
+        } catch (TimeoutException e) {
+            System.err.println("Timed out saving blobs for " + iosVersion + ": " + e.getMessage());
+            return Outcome.TIMED_OUT;
+        } catch (TSSException e) {
+            if (e.getMessage().contains("not being signed")) {
+                SigningMatrix.invalidate(deviceIdentifier);
+            }
+            if (manualVersion == null && manualIpswURL == null) {
+                var msg = e.getMessage();
+                if (msg.contains("not being signed")) {
+                    System.err.println("Warning: ignoring unsigned version; API is likely out of date");
+                    return Outcome.SKIPPED; // ignore not being signed (API might not be updated)
+                }
+                if ((msg.contains("Failed to load manifest") || msg.contains("Unable to extract BuildManifest"))
+                        && includeBetas
+                        && containsIgnoreCase(iosVersion.versionString(), "beta")
+                        && iosVersion.ipswURL().contains("developer.apple")) {
+                    System.err.println("Warning: ignoring developer beta");
+                    return Outcome.SKIPPED;
+                }
+            }
+            throw e;
+        }
     }
 
-    private void saveFor(Utils.IOSVersion iosVersion, ArrayList<String> args) throws TSSException {
+    /**
+     * @throws TimeoutException if the manifest or the blobs could not be retrieved before the deadline
+     */
+    private void saveFor(ManifestPipeline manifests, int index, ArrayList<String> args) throws TSSException, TimeoutException {
         final int urlIndex = args.size() - 1;
         final int pathIndex = args.size() - 3;
-        Path manifest;
+        Utils.IOSVersion iosVersion = manifests.version(index);
+        Path manifest, slimManifest;
         try {
-            manifest = extractBuildManifest(iosVersion.ipswURL());
-            args.set(urlIndex, manifest.toString());
+            manifest = manifests.take(index, deadline);
+            slimManifest = slimManifest(manifest, iosVersion);
+            args.set(urlIndex, slimManifest.toString());
         } catch (IOException e) {
             throw new TSSException("Unable to extract BuildManifest.", true, e);
+        } catch (InterruptedException e) {
+            throw new TSSException("Saving blobs was cancelled.", false, e);
         }
         try {
             args.set(pathIndex, parsePathWithVersion(iosVersion));
             Files.createDirectories(Path.of(args.get(pathIndex)));
         } catch (IOException e) {
+            sources.release(manifest);
             throw new TSSException("Unable to create save directory. Try with a different save path. If you are using variables, make sure they are spelled correctly.", false, e);
         }
         try {
-            System.out.println("Running: " + args);
-            String tssLog = executeProgram(args);
-            parseTSSLog(tssLog);
+            requestBlob(slimManifest, Path.of(args.get(pathIndex)), args);
+            var key = blobIndexKey(iosVersion);
+            if (key != null) {
+                BlobIndex.of(Path.of(args.get(pathIndex))).add(key);
+            }
         } catch (IOException e) {
             throw new TSSException("There was an error starting tsschecker.", true, e);
+        } catch (InterruptedException e) {
+            throw new TSSException("Saving blobs was cancelled.", false, e);
         } finally {
-            deleteIfPossible(manifest);
+            sources.release(manifest);
         }
     }
 
-    private void deleteIfPossible(Path file) {
+    /**
+     * @return a copy of the manifest with only this device's build identities, or the full manifest if it can't be
+     * slimmed
+     */
+    private Path slimManifest(Path manifest, Utils.IOSVersion iosVersion) {
         try {
-            Files.deleteIfExists(file);
+            return ManifestCache.slim(manifest, iosVersion.buildid(), getBoardConfig());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to slim manifest; using the full manifest: " + e);
+            return manifest;
+        }
+    }
+
+    /**
+     * Requests the blob from the TSS server, retrying transient failures as allowed by {@link #retryPolicy}.
+     */
+    private void requestBlob(Path manifest, Path saveDirectory, ArrayList<String> args) throws TSSException, TimeoutException, IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            if (!retryPolicy.allowRequest(tssEndpoint)) {
+                throw new TSSException("Saving blobs failed. Apple's TSS server is failing repeatedly; try again in a few minutes.", false);
+            }
+            boolean recorded = false;
+            try {
+                if (engine != Engine.BUILTIN || !saveWithTSSClient(manifest, saveDirectory)) {
+                    System.out.println("Running: " + args);
+                    var tssLog = new TSSLogClassifier();
+                    executeProgram(args, tssLog::accept, versionDeadline());
+                    parseTSSLog(tssLog);
+                }
+                recorded = true;
+                retryPolicy.onSuccess(tssEndpoint);
+                return;
+            } catch (TransientTSSException e) {
+                recorded = true;
+                retryPolicy.onFailure(tssEndpoint);
+                var delay = retryPolicy.retryDelay(attempt, deadline);
+                if (delay == null) {
+                    throw e;
+                }
+                System.out.println(e.getMessage() + " Retrying in " + delay.toMillis() + " ms (attempt " + attempt + ")");
+                Thread.sleep(delay);
+            } catch (TimeoutException e) {
+                recorded = true;
+                retryPolicy.onFailure(tssEndpoint);
+                throw e;
+            } catch (TSSException e) {
+                recorded = true;
+                retryPolicy.onSuccess(tssEndpoint); // not a problem with the server
+                throw e;
+            } finally {
+                if (!recorded) { // e.g. cancelled, or tsschecker failed to start
+                    retryPolicy.onAbandoned(tssEndpoint);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the deadline for a single tsschecker run or TSS request, which is never later than {@link #deadline}
+     */
+    private Instant versionDeadline() {
+        var versionDeadline = Instant.now().plus(tssTimeout);
+        return versionDeadline.isBefore(deadline) ? versionDeadline : deadline;
+    }
+
+    /**
+     * @return false if the device is not supported by {@link TSSClient} and tsschecker should be used instead
+     */
+    @SuppressWarnings("unchecked")
+    private boolean saveWithTSSClient(Path manifest, Path saveDirectory) throws TSSException, TimeoutException {
+        Map<String, Object> buildManifest;
+        try {
+            buildManifest = (Map<String, Object>) Plist.parse(manifest);
+        } catch (IOException | ClassCastException e) {
+            throw new TSSException("Failed to load manifest.", true, e); // this exact message is used elsewhere; do not modify
+        }
+        var device = new TSSClient.Device(parseECID(), deviceIdentifier, getBoardConfig(), apnonce, generator);
+        try {
+            var timeout = Duration.between(Instant.now(), versionDeadline());
+            if (timeout.isNegative() || timeout.isZero()) {
+                throw new TimeoutException("Deadline passed before sending the request");
+            }
+            tssClient.save(device, buildManifest, saveDirectory, timeout);
+            return true;
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e.getMessage() + "; using tsschecker");
+            return false;
+        } catch (NoSuchElementException e) {
+            throw new TSSException("Saving blobs failed. Check the board configuration or try again later.", true, e);
+        } catch (NumberFormatException e) {
+            throw new TSSException("\"" + generator + "\" is not a valid generator", false, e);
+        } catch (IllegalArgumentException e) {
+            throw new TSSException("\"" + apnonce + "\" is not a valid APNonce", false, e);
+        } catch (TSSClient.TSSServerException e) {
+            if (e.status == TSSClient.TSSServerException.NOT_SIGNED) {
+                throw notBeingSigned();
+            }
+            throw new TSSException("Saving blobs failed. " + e.getMessage(), true, e);
+        } catch (HttpTimeoutException e) {
+            throw (TimeoutException) new TimeoutException("TSS server did not respond in time").initCause(e);
+        } catch (IOException e) {
+            throw new TransientTSSException("Saving blobs failed. Check your internet connection.", false, e);
+        } catch (InterruptedException e) {
+            throw new TSSException("Saving blobs was cancelled.", false, e);
+        }
+    }
+
+    /**
+     * Deletes the manifest if it is a temporary file, and leaves it alone if it is in the {@link ManifestCache}.
+     */
+    static void releaseManifest(Path manifest) {
+        if (ManifestCache.contains(manifest) || IPSWLibrary.contains(manifest)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(manifest);
         } catch (IOException ignored) {
         }
     }
 
+    /**
+     * Extracts build manifests ahead of time, so that the manifests for the next versions are downloaded while
+     * tsschecker is running for the current one. Taking the manifest at {@code index} starts the extraction of the
+     * manifests up to {@code index + lookahead}, so at most {@code lookahead} manifests are extracted early.
+     * <p>
+     * Manifests that were extracted but never taken are released when the pipeline is closed.
+     */
+    private static final class ManifestPipeline implements AutoCloseable {
+        private final List<Utils.IOSVersion> versions;
+        private final String deviceIdentifier;
+        private final int lookahead;
+        private final Sources sources;
+        private final List<CompletableFuture<Path>> manifests;
+        private final boolean[] taken;
+
+        ManifestPipeline(List<Utils.IOSVersion> versions, String deviceIdentifier, int lookahead, Sources sources) {
+            this.versions = versions;
+            this.deviceIdentifier = deviceIdentifier;
+            this.lookahead = lookahead;
+            this.sources = sources;
+            this.manifests = new ArrayList<>(Collections.nCopies(versions.size(), null));
+            this.taken = new boolean[versions.size()];
+        }
+
+        Utils.IOSVersion version(int index) {
+            return versions.get(index);
+        }
+
+        /**
+         * Waits until the deadline for the manifest at {@code index} to be extracted. The caller is responsible for
+         * releasing it with {@link Sources#release(Path)}.
+         */
+        Path take(int index, Instant deadline) throws IOException, InterruptedException, TimeoutException {
+            CompletableFuture<Path> manifest;
+            synchronized (this) {
+                taken[index] = true;
+                for (int i = index; i <= Math.min(index + lookahead, versions.size() - 1); i++) {
+                    start(i);
+                }
+                manifest = manifests.get(index);
+            }
+            try {
+                return manifest.get(Math.max(Duration.between(Instant.now(), deadline).toMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | TimeoutException e) {
+                manifest.thenAccept(sources::release);
+                throw e;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException u) {
+                    throw u.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        private void start(int index) {
+            if (manifests.get(index) != null) {
+                return;
+            }
+            Utils.IOSVersion version = versions.get(index);
+            manifests.set(index, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return sources.manifest(deviceIdentifier, version);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, Utils::executeInThreadPool));
+        }
+
+        @Override
+        public synchronized void close() {
+            for (int i = 0; i < manifests.size(); i++) {
+                if (!taken[i] && manifests.get(i) != null) {
+                    manifests.get(i).thenAccept(sources::release);
+                }
+            }
+        }
+    }
+
     private void checkInputs() throws TSSException {
         try {
             Devices.getDeviceType(deviceIdentifier);
@@ -263,6 +773,7 @@ public class TSS extends Task<String> {
         if (boardConfig == null && Devices.doesRequireBoardConfig(deviceIdentifier)) {
             throw new TSSException("A board configuration is required for this device.", false);
         }
+        savePath = compileSavePath(rawSavePath);
         if (manualIpswURL != null) { // check URL
             try {
                 if (!ipswURLPattern.matcher(manualIpswURL).matches()) {
@@ -298,18 +809,28 @@ public class TSS extends Task<String> {
             } else if (manualIpswURL != null) {
                 return Collections.singletonList(new Utils.IOSVersion(null, null, manualIpswURL, null));
             } else if (includeBetas) {
-                var signedFirmwares = getSignedFirmwares(deviceIdentifier);
+                // releases and betas come from different hosts, so fetch them at the same time
+                CompletableFuture<List<Utils.IOSVersion>> signedBetas = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return sources.signedBetas(deviceIdentifier).toList();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, Utils::executeInThreadPool);
+                var signedFirmwares = sources.signedFirmwares(deviceIdentifier);
                 try {
-                    Stream<Utils.IOSVersion> signedBetas = getSignedBetas(deviceIdentifier);
-                    return Stream.concat(signedFirmwares, signedBetas).toList();
-                } catch (Exception e) {
+                    return Stream.concat(signedFirmwares, signedBetas.get().stream()).toList();
+                } catch (InterruptedException e) {
+                    throw new TSSException("Saving blobs was cancelled.", false, e);
+                } catch (ExecutionException executionException) {
+                    Throwable e = executionException.getCause() instanceof UncheckedIOException u ? u.getCause() : executionException.getCause();
                     if (e.getMessage() != null && e.getMessage().startsWith("HTTP Response was (GET https://www.betahub.cn/api/")) {
                         throw new TSSException("There was an error retrieving beta versions; try disabling 'Include Betas'.\n\nThis is a known issue. See issue #614 on GitHub for more information or if you can help.", false, e);
                     }
                     throw new TSSException("There was an error retrieving beta versions; try disabling 'Include Betas'. For more information, try again with the debug log open.", false, e);
                 }
             } else { // all signed firmwares
-                return getSignedFirmwares(deviceIdentifier).toList();
+                return sources.signedFirmwares(deviceIdentifier).toList();
             }
         } catch (FileNotFoundException e) {
             var message = "The device \"" + deviceIdentifier + "\" could not be found.";
@@ -347,46 +868,52 @@ public class TSS extends Task<String> {
         return Utils.defIfNull(boardConfig, Devices.getBoardConfig(deviceIdentifier));
     }
 
-    private void parseTSSLog(String tsscheckerLog) throws TSSException {
-        if (containsIgnoreCase(tsscheckerLog, "Saved shsh blobs")) {
-            return; // success
-        } else if (containsIgnoreCase(tsscheckerLog, "[Error] [TSSC] manually specified ecid=" + ecid + ", but parsing failed")) {
-            throw new TSSException("\"" + ecid + "\" is not a valid ECID. Try using the 'Read from device' button.", false);
-        } else if (containsIgnoreCase(tsscheckerLog, "[Error] [TSSC] manually specified ApNonce=" + apnonce + ", but parsing failed")
-                || containsIgnoreCase(tsscheckerLog, "[Error] [TSSR] parsed APNoncelen != requiredAPNoncelen")) {
-            throw new TSSException("\"" + apnonce + "\" is not a valid APNonce", false);
-        } else if (containsIgnoreCase(tsscheckerLog, "could not get BuildIdentity for installType=Erase")
-                && containsIgnoreCase(tsscheckerLog, "could not get BuildIdentity for installType=Update")
-                && containsIgnoreCase(tsscheckerLog, "checking tss status failed")) {
-            throw new TSSException("Saving blobs failed. Check the board configuration or try again later.", true, tsscheckerLog);
-        } else if (containsIgnoreCase(tsscheckerLog, "Could not resolve host")) {
-            throw new TSSException("Saving blobs failed. Check your internet connection.", false, tsscheckerLog);
-        } else if (containsIgnoreCase(tsscheckerLog, "can't save shsh at")) {
-            throw new TSSException("'" + savePath + "' is not a valid path. If you are using variables, make sure they are spelled correctly.", false);
-        } else if (containsIgnoreCase(tsscheckerLog, "IS NOT being signed")) {
-            if (manualVersion == null) {
-                throw new TSSException("The " + Devices.getOSNameForType(Devices.getDeviceType(deviceIdentifier)) + " version is not being signed for device " + deviceIdentifier, false);
-            } else {
-                throw new TSSException("%s %s is not being signed for device %s".formatted(
-                        Devices.getOSNameForIdentifier(deviceIdentifier), manualVersion, deviceIdentifier), false);
+    private void parseTSSLog(TSSLogClassifier tsscheckerLog) throws TSSException {
+        switch (tsscheckerLog.verdict()) {
+            case SUCCESS -> {
             }
-
-        } else if (containsIgnoreCase(tsscheckerLog, "failed to load manifest")) {
-            if (manualIpswURL != null) {
-                throw new TSSException("Failed to load manifest. The IPSW or build manifest URL is not valid.\n\n", false);
-            } else {
-                throw new TSSException("Failed to load manifest.", true, tsscheckerLog); // this exact message is used elsewhere; do not modify
+            case INVALID_ECID ->
+                    throw new TSSException("\"" + ecid + "\" is not a valid ECID. Try using the 'Read from device' button.", false);
+            case INVALID_APNONCE -> throw new TSSException("\"" + apnonce + "\" is not a valid APNonce", false);
+            case INVALID_BOARD_CONFIG ->
+                    throw new TSSException("Saving blobs failed. Check the board configuration or try again later.", true, tsscheckerLog.log());
+            case NO_CONNECTION ->
+                    throw new TransientTSSException("Saving blobs failed. Check your internet connection.", false, tsscheckerLog.log());
+            case INVALID_SAVE_PATH ->
+                    throw new TSSException("'" + savePath + "' is not a valid path. If you are using variables, make sure they are spelled correctly.", false);
+            case NOT_SIGNED -> throw notBeingSigned();
+            case MANIFEST_LOAD_FAILED -> {
+                if (manualIpswURL != null) {
+                    throw new TSSException("Failed to load manifest. The IPSW or build manifest URL is not valid.\n\n", false);
+                } else {
+                    throw new TSSException("Failed to load manifest.", true, tsscheckerLog.log()); // this exact message is used elsewhere; do not modify
+                }
             }
-        } else if (containsIgnoreCase(tsscheckerLog, "selected device can't be used with that buildmanifest")) {
-            throw new TSSException("Device and build manifest don't match.", false);
+            case DEVICE_MISMATCH -> throw new TSSException("Device and build manifest don't match.", false);
+            case TSS_STATUS_FAILED ->
+                    throw new TransientTSSException("Saving blobs failed. Apple's TSS server returned an error; try again later.", true, tsscheckerLog.log());
+            case UNKNOWN -> throw new TSSException("An unknown error occurred.", true, tsscheckerLog.log());
+        }
+    }
+
+    private TSSException notBeingSigned() {
+        if (manualVersion == null) {
+            return new TSSException("The " + Devices.getOSNameForType(Devices.getDeviceType(deviceIdentifier)) + " version is not being signed for device " + deviceIdentifier, false);
+        } else {
+            return new TSSException("%s %s is not being signed for device %s".formatted(
+                    Devices.getOSNameForIdentifier(deviceIdentifier), manualVersion, deviceIdentifier), false);
         }
-        throw new TSSException("An unknown error occurred.", true, tsscheckerLog);
     }
 
     @SuppressWarnings("UnusedReturnValue")
     public static class Builder {
         private String name, device, ecid, savePath, boardConfig, manualVersion, manualIpswURL, apnonce, generator;
         private boolean includeBetas, saveToTSSSaver, saveToSHSHHost;
+        private int parallelism;
+        private Sources sources = defaultSources;
+        private Map<Request, CompletableFuture<Outcome>> claimedRequests;
+        private Instant deadline;
+        private RetryPolicy retryPolicy;
 
         public Builder setName(String name) {
             this.name = name;
@@ -450,12 +977,55 @@ public class TSS extends Task<String> {
             return this;
         }
 
+        /**
+         * @param parallelism the maximum number of versions to save blobs for at once, or 0 to use the preference
+         */
+        public Builder setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        Builder setSources(Sources sources) {
+            this.sources = Objects.requireNonNull(sources);
+            return this;
+        }
+
+        /**
+         * Versions whose {@link Request} is already in the map are saved by the task that claimed it. This task
+         * waits for that one, and saves the blob itself if the other one didn't.
+         *
+         * @param claimedRequests a thread-safe map shared between tasks
+         */
+        Builder setClaimedRequests(Map<Request, CompletableFuture<Outcome>> claimedRequests) {
+            this.claimedRequests = claimedRequests;
+            return this;
+        }
+
+        /**
+         * @param deadline when the whole task has to be done by, or null to use {@link #saveTimeout}
+         */
+        Builder setDeadline(Instant deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy a policy shared between tasks, so that they share a retry budget
+         */
+        Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         public TSS build() {
             return new TSS(name,
                     Objects.requireNonNull(device, "Device"),
                     Objects.requireNonNull(ecid, "ECID"),
                     Objects.requireNonNull(savePath, "Save Path"),
-                    boardConfig, includeBetas, manualVersion, manualIpswURL, apnonce, generator, saveToTSSSaver, saveToSHSHHost);
+                    boardConfig, includeBetas, manualVersion, manualIpswURL, apnonce, generator, saveToTSSSaver, saveToSHSHHost,
+                    parallelism > 0 ? parallelism : Prefs.getMaxParallelSaves(),
+                    Prefs.getTSSEngine(), sources, claimedRequests, deadline,
+                    Utils.defIfNull(retryPolicy, new RetryPolicy(RetryPolicy.defaultRetryBudget)));
         }
     }
 
@@ -497,7 +1067,25 @@ public class TSS extends Task<String> {
         }
     }
 
-    private void saveBlobsTSSSaver(StringBuilder responseBuilder) throws IOException, InterruptedException {
+    /**
+     * An error that is likely to go away if the request is retried
+     */
+    private static final class TransientTSSException extends TSSException {
+        TransientTSSException(String message, boolean isReportable, String tssLog) {
+            super(message, isReportable, tssLog);
+        }
+
+        TransientTSSException(String message, boolean isReportable, Throwable cause) {
+            super(message, isReportable, cause);
+        }
+    }
+
+    /**
+     * Starts uploading to TSS Saver.
+     *
+     * @return a future that completes with the line to add to the summary; it never completes exceptionally
+     */
+    private CompletableFuture<String> saveBlobsTSSSaver() {
         var deviceParameters = new HashMap<>();
 
         deviceParameters.put("ecid", String.valueOf(parseECID()));
@@ -515,33 +1103,36 @@ public class TSS extends Task<String> {
         var headers = new HashMap<String, String>();
         headers.put("Content-Type", "application/x-www-form-urlencoded");
 
-        HttpResponse<String> response =
-                Network.makePOSTRequest("https://tsssaver.1conan.com/v2/api/save.php", deviceParameters, headers, true);
+        return upload("TSS Saver", Network.makePOSTRequestAsync("https://tsssaver.1conan.com/v2/api/save.php", deviceParameters, headers, true),
+                TSS::parseTSSSaverResponse);
+    }
+
+    private static String parseTSSSaverResponse(HttpResponse<String> response) {
         System.out.println(response.body());
 
         Map responseBody;
         try {
             responseBody = new Gson().fromJson(response.body(), Map.class);
         } catch (JsonSyntaxException e) {
-            responseBuilder.append("Error encountered while trying to save blobs to TSSSaver: ").append(response.body())
-                    .append("\nThis is likely an issue with the third-party service, not blobsaver.");
-            return;
+            return "Error encountered while trying to save blobs to TSSSaver: " + response.body()
+                    + "\nThis is likely an issue with the third-party service, not blobsaver.";
         }
 
         if (responseBody == null) {
-            responseBuilder.append("Error encountered while trying to save blobs to TSSSaver: ").append("Response code=").append(response.statusCode());
+            return "Error encountered while trying to save blobs to TSSSaver: " + "Response code=" + response.statusCode();
         } else if (responseBody.containsKey("errors")) {
-            responseBuilder.append("Error encountered while trying to save blobs to TSSSaver: ").append(responseBody.get("errors"));
+            return "Error encountered while trying to save blobs to TSSSaver: " + responseBody.get("errors");
         } else {
-            responseBuilder.append("Also saved blobs online to TSS Saver.");
+            return "Also saved blobs online to TSS Saver.";
         }
     }
 
-    private void saveBlobsSHSHHost(StringBuilder responseBuilder) throws IOException, InterruptedException {
-        if (saveToTSSSaver) {
-            responseBuilder.append("\n");
-        }
-
+    /**
+     * Starts uploading to SHSH Host.
+     *
+     * @return a future that completes with the line to add to the summary; it never completes exceptionally
+     */
+    private CompletableFuture<String> saveBlobsSHSHHost() {
         var deviceParameters = new HashMap<>();
 
         deviceParameters.put("ecid", ecid);
@@ -563,23 +1154,47 @@ public class TSS extends Task<String> {
         headers.put("User-Agent", userAgent);
         headers.put("X-CPU-STATE", "0000000000000000000000000000000000000000");
 
-        HttpResponse<String> response =
-                Network.makePOSTRequest("https://api.arx8x.net/shsh3/", deviceParameters, headers, false);
+        return upload("SHSH Host", Network.makePOSTRequestAsync("https://api.arx8x.net/shsh3/", deviceParameters, headers, false),
+                TSS::parseSHSHHostResponse);
+    }
+
+    private static String parseSHSHHostResponse(HttpResponse<String> response) {
         System.out.println(response.body());
 
         Map responseBody;
         try {
             responseBody = new Gson().fromJson(response.body(), Map.class);
         } catch (JsonSyntaxException e) {
-            responseBuilder.append("Error encountered while trying to save blobs to SHSH Host: ").append(response.body())
-                    .append("\nThis is likely an issue with the third-party service, not blobsaver.");
-            return;
+            return "Error encountered while trying to save blobs to SHSH Host: " + response.body()
+                    + "\nThis is likely an issue with the third-party service, not blobsaver.";
         }
 
         if (responseBody.get("code").equals((double) 0)) {
-            responseBuilder.append("Also saved blobs online to SHSH Host.");
+            return "Also saved blobs online to SHSH Host.";
         } else {
-            responseBuilder.append("Error encountered while trying to save blobs to SHSH Host: ").append(responseBody.get("message"));
+            return "Error encountered while trying to save blobs to SHSH Host: " + responseBody.get("message");
+        }
+    }
+
+    /**
+     * @return the message describing the result of the upload. Cancelling it also cancels the request.
+     */
+    private static CompletableFuture<String> upload(String service, CompletableFuture<HttpResponse<String>> request,
+                                                    Function<HttpResponse<String>, String> parseResponse) {
+        var upload = request.thenApply(parseResponse).exceptionally(e -> uploadError(service, e));
+        upload.whenComplete((_, e) -> {
+            if (e instanceof CancellationException) {
+                request.cancel(true);
+            }
+        });
+        return upload;
+    }
+
+    private static String uploadError(String service, Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
         }
+        e.printStackTrace();
+        return "Error encountered while trying to save blobs to " + service + ": " + e.getMessage();
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.stream.Stream;
+
+/**
+ * Saves blobs for many devices at once, sharing the work between them: the firmware catalog is fetched once per
+ * identifier, each build manifest is extracted once per IPSW, and a blob that several devices would save to the same
+ * place is only requested once.
+ */
+final class TSSBatch {
+
+    /**
+     * @param message the result of {@link TSS#call()}, or null if it failed
+     * @param error   the reason it failed, or null if it succeeded
+     */
+    record Result(String message, Throwable error) {
+    }
+
+    /**
+     * Saves blobs for every device, running at most {@code parallelism} of them at once. A failure for one device
+     * does not affect the others. All devices share one retry budget and one deadline,
+     * {@link TSS#saveTimeout} from now, so devices waiting for their turn don't extend the run.
+     *
+     * @param signingMatrix where the signed versions are read from; it should include the devices' identifiers
+     * @return the result for each device, in the same order as {@code devices}
+     */
+    static List<Result> saveAll(List<TSS.Builder> devices, int parallelism, SigningMatrix signingMatrix) throws InterruptedException {
+        var permits = new Semaphore(Math.max(parallelism, 1));
+        Map<TSS.Request, CompletableFuture<TSS.Outcome>> claimedRequests = new ConcurrentHashMap<>();
+        Instant deadline = Instant.now().plus(TSS.saveTimeout);
+        var retryPolicy = new RetryPolicy(RetryPolicy.defaultRetryBudget);
+        try (var sources = new SharedSources(signingMatrix); var scope = new StructuredTaskScope<String>()) {
+            var subtasks = new ArrayList<StructuredTaskScope.Subtask<String>>(devices.size());
+            for (TSS.Builder device : devices) {
+                // versions are already saved in parallel across devices
+                TSS tss = device.setSources(sources).setClaimedRequests(claimedRequests)
+                        .setDeadline(deadline).setRetryPolicy(retryPolicy).setParallelism(1).build();
+                subtasks.add(scope.fork(() -> {
+                    permits.acquire();
+                    try {
+                        return tss.call();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            scope.join();
+
+            var results = new ArrayList<Result>(subtasks.size());
+            for (var subtask : subtasks) {
+                results.add(subtask.state() == StructuredTaskScope.Subtask.State.SUCCESS
+                        ? new Result(subtask.get(), null) : new Result(null, subtask.exception()));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Fetches each catalog and manifest the first time it is asked for, and returns the same result afterwards.
+     * Manifests are kept until the batch is done. Failures aren't kept, so a transient failure for one device doesn't
+     * fail every later device that needs the same catalog or manifest.
+     */
+    private static final class SharedSources implements TSS.Sources, AutoCloseable {
+
+        private final Once<List<Utils.IOSVersion>> firmwares = new Once<>();
+        private final Once<List<Utils.IOSVersion>> betas = new Once<>();
+        private final Once<Path> manifests = new Once<>();
+        private final SigningMatrix signingMatrix;
+
+        SharedSources(SigningMatrix signingMatrix) {
+            this.signingMatrix = signingMatrix;
+        }
+
+        @Override
+        public Stream<Utils.IOSVersion> signedFirmwares(String deviceIdentifier) throws IOException {
+            return firmwares.get(deviceIdentifier, () -> signingMatrix.signedFirmwares(deviceIdentifier)).stream();
+        }
+
+        @Override
+        public Stream<Utils.IOSVersion> signedBetas(String deviceIdentifier) throws IOException {
+            return betas.get(deviceIdentifier, () -> signingMatrix.signedBetas(deviceIdentifier)).stream();
+        }
+
+        @Override
+        public Path manifest(String deviceIdentifier, Utils.IOSVersion version) throws IOException {
+            return manifests.get(version.ipswURL(), () -> TSS.defaultSources.manifest(deviceIdentifier, version));
+        }
+
+        @Override
+        public void release(Path manifest) {
+            // other devices may still need it
+        }
+
+        @Override
+        public void close() {
+            manifests.values.values().forEach(TSS::releaseManifest);
+        }
+
+        /**
+         * Concurrent loads of a key share a {@link SingleFlight}, and only successful results are kept
+         */
+        private static final class Once<V> {
+            private final Map<String, V> values = new ConcurrentHashMap<>();
+            private final SingleFlight<String, V> inFlight = new SingleFlight<>();
+
+            V get(String key, SingleFlight.Loader<V> loader) throws IOException {
+                V value = values.get(key);
+                return value != null ? value : inFlight.get(key, () -> {
+                    V loaded = values.get(key); // by a load that finished in the meantime
+                    if (loaded == null) {
+                        loaded = loader.load();
+                        values.put(key, loaded);
+                    }
+                    return loaded;
+                });
+            }
+        }
+    }
+}
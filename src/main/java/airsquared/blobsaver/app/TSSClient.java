@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Saves blobs without starting tsschecker: builds the TSS request from the build manifest, sends it to the TSS server
+ * over the shared {@link Network} client, and writes the ticket to a {@code .shsh2} file.
+ * <p>
+ * Only 64-bit devices (those that use IMG4 tickets) are supported, and no baseband ticket is requested.
+ * The request follows {@code tss_request_add_ap_img4_tags()} and {@code tss_request_add_ap_tags()} from idevicerestore,
+ * which tsschecker also uses.
+ */
+final class TSSClient {
+
+    static final URI appleEndpoint = URI.create("http://gs.apple.com/TSS/controller?action=2");
+
+    private static final String defaultGenerator = "0x1111111111111111";
+
+    private final URI endpoint;
+
+    TSSClient(URI endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @param apnonce   hex encoded, or null to derive it from the generator
+     * @param generator the generator to store in the blob. If it and the APNonce are null, the same default as
+     *                  blobsaver is used; if only it is null, no generator is stored.
+     */
+    record Device(long ecid, String deviceIdentifier, String boardConfig, String apnonce, String generator) {}
+
+    /**
+     * Thrown when the TSS server responds with a non-zero status, e.g. {@code 94} when the version is not signed.
+     */
+    static final class TSSServerException extends IOException {
+        static final int NOT_SIGNED = 94;
+
+        final int status;
+
+        TSSServerException(int status, String message) {
+            super("TSS server returned status " + status + ": " + message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Saves a blob for the device in {@code saveDirectory}, using the same file name as tsschecker.
+     *
+     * @param timeout how long to wait for the TSS server to respond
+     * @return the path of the saved blob
+     * @throws NumberFormatException if the generator is invalid
+     * @throws IllegalArgumentException if the APNonce is invalid
+     * @throws NoSuchElementException if the manifest has no build identity for the board configuration
+     * @throws UnsupportedOperationException if the device does not use IMG4 tickets
+     * @throws TSSServerException if the TSS server did not return a ticket
+     * @throws java.net.http.HttpTimeoutException if the TSS server did not respond in time
+     */
+    Path save(Device device, Map<String, Object> buildManifest, Path saveDirectory, Duration timeout) throws IOException, InterruptedException {
+        var identity = findIdentity(buildManifest, device.boardConfig());
+        if (!identity.containsKey("UniqueBuildID") || !identity.containsKey("ApSecurityDomain")) {
+            throw new UnsupportedOperationException("Only devices that use IMG4 tickets are supported");
+        }
+
+        // like tsschecker, only store a generator that was given or that the APNonce was derived from
+        String generator = device.apnonce() == null ? Utils.defIfNull(device.generator(), defaultGenerator) : device.generator();
+        long chipId = Plist.toLong(identity.get("ApChipID"));
+        byte[] apnonce = device.apnonce() != null ? parseApnonce(device.apnonce(), chipId) : apnonceFor(generator, chipId);
+
+        Map<String, Object> ticket = send(createRequest(identity, device.ecid(), apnonce), timeout);
+        if (generator != null) {
+            ticket.put("generator", generator);
+        }
+
+        String fileName = device.ecid() + "_" + device.deviceIdentifier() + "_" + device.boardConfig()
+                + "_" + buildManifest.get("ProductVersion") + "-" + buildManifest.get("ProductBuildVersion")
+                + (device.apnonce() != null ? "_" + device.apnonce() : "") + ".shsh2";
+        Path blob = saveDirectory.resolve(fileName);
+        Files.writeString(blob, Plist.toXml(ticket));
+        System.out.println("Saved shsh blobs to " + blob);
+        return blob;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> findIdentity(Map<String, Object> buildManifest, String boardConfig) {
+        var identities = (List<Map<String, Object>>) buildManifest.get("BuildIdentities");
+        for (String restoreBehavior : new String[]{"Erase", "Update"}) {
+            for (Map<String, Object> identity : identities) {
+                var info = (Map<String, Object>) identity.get("Info");
+                if (boardConfig.equalsIgnoreCase((String) info.get("DeviceClass"))
+                        && restoreBehavior.equals(info.get("RestoreBehavior"))) {
+                    return identity;
+                }
+            }
+        }
+        throw new NoSuchElementException("Could not find a build identity for board configuration " + boardConfig);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> createRequest(Map<String, Object> identity, long ecid, byte[] apnonce) {
+        var request = new LinkedHashMap<String, Object>();
+        request.put("@HostPlatformInfo", "mac");
+        request.put("@VersionInfo", "libauthinstall-1033.0.2");
+        request.put("@UUID", UUID.randomUUID().toString().toUpperCase());
+        request.put("@ApImg4Ticket", true);
+        request.put("ApECID", ecid);
+        request.put("UniqueBuildID", identity.get("UniqueBuildID"));
+        request.put("ApChipID", Plist.toLong(identity.get("ApChipID")));
+        request.put("ApBoardID", Plist.toLong(identity.get("ApBoardID")));
+        request.put("ApSecurityDomain", Plist.toLong(identity.get("ApSecurityDomain")));
+        request.put("ApNonce", apnonce);
+        request.put("SepNonce", new byte[20]);
+        request.put("ApProductionMode", true);
+        request.put("ApSecurityMode", true);
+
+        var parameters = Map.<String, Object>of("ApProductionMode", true, "ApSecurityMode", true, "ApSupportsImg4", true);
+        var manifest = (Map<String, Object>) identity.get("Manifest");
+        for (Map.Entry<String, Object> component : manifest.entrySet()) {
+            String key = component.getKey();
+            if (key.equals("BasebandFirmware") || key.equals("SE,UpdatePayload") || key.equals("Diags")) {
+                continue;
+            }
+            var entry = (Map<String, Object>) component.getValue();
+            var info = (Map<String, Object>) entry.get("Info");
+            if (info == null || !info.containsKey("RestoreRequestRules")) {
+                continue;
+            }
+            var tssEntry = new LinkedHashMap<>(entry);
+            tssEntry.remove("Info");
+            applyRestoreRequestRules(tssEntry, parameters, (List<Map<String, Object>>) info.get("RestoreRequestRules"));
+            if (Boolean.TRUE.equals(entry.get("Trusted")) && !entry.containsKey("Digest")) {
+                tssEntry.put("Digest", new byte[0]);
+            }
+            request.put(key, tssEntry);
+        }
+        return request;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void applyRestoreRequestRules(Map<String, Object> entry, Map<String, Object> parameters,
+                                                 List<Map<String, Object>> rules) {
+        for (Map<String, Object> rule : rules) {
+            var conditions = (Map<String, Object>) rule.get("Conditions");
+            boolean matches = conditions != null;
+            for (Map.Entry<String, Object> condition : matches ? conditions.entrySet() : Map.<String, Object>of().entrySet()) {
+                String parameter = switch (condition.getKey()) {
+                    case "ApRawProductionMode", "ApCurrentProductionMode" -> "ApProductionMode";
+                    case "ApRawSecurityMode" -> "ApSecurityMode";
+                    case "ApRequiresImage4" -> "ApSupportsImg4";
+                    case "ApDemotionPolicyOverride" -> "DemotionPolicy";
+                    case "ApInRomDFU" -> "ApInRomDFU";
+                    default -> null;
+                };
+                if (parameter == null || !condition.getValue().equals(parameters.get(parameter))) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (!matches) {
+                continue;
+            }
+            var actions = (Map<String, Object>) rule.get("Actions");
+            for (Map.Entry<String, Object> action : actions.entrySet()) {
+                if (action.getValue() instanceof Boolean) { // 255 means "don't set"
+                    entry.put(action.getKey(), action.getValue());
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> send(Map<String, Object> request, Duration timeout) throws IOException, InterruptedException {
+        var headers = Map.of("Cache-Control", "no-cache",
+                "Content-Type", "text/xml; charset=\"utf-8\"",
+                "User-Agent", "InetURL/1.0");
+        HttpResponse<String> response = Network.makePOSTRequest(endpoint, Plist.toXml(request), headers, timeout);
+        if (response.statusCode() < 200 || response.statusCode() > 299) {
+            throw new IOException("HTTP Response was " + response);
+        }
+        String body = response.body();
+
+        // STATUS=0&MESSAGE=SUCCESS&REQUEST_STRING=<plist>
+        int status = -1;
+        String message = body;
+        for (String part : body.split("&", 3)) {
+            if (part.startsWith("STATUS=")) {
+                status = Integer.parseInt(part.substring("STATUS=".length()).trim());
+            } else if (part.startsWith("MESSAGE=")) {
+                message = URLDecoder.decode(part.substring("MESSAGE=".length()), StandardCharsets.UTF_8);
+            } else if (part.startsWith("REQUEST_STRING=") && status == 0) {
+                var ticket = Plist.parse(new ByteArrayInputStream(
+                        part.substring("REQUEST_STRING=".length()).getBytes(StandardCharsets.UTF_8)));
+                return new LinkedHashMap<>((Map<String, Object>) ticket);
+            }
+        }
+        throw new TSSServerException(status, message);
+    }
+
+    static byte[] parseApnonce(String apnonce, long chipId) {
+        byte[] bytes = HexFormat.of().parseHex(apnonce.replace(" ", ""));
+        if (bytes.length != apnonceLength(chipId)) {
+            throw new IllegalArgumentException("APNonce must be " + apnonceLength(chipId) + " bytes for this device");
+        }
+        return bytes;
+    }
+
+    /**
+     * Derives the APNonce the device would generate from the generator: the first bytes of SHA-384 for A12 and newer,
+     * or SHA-1 for older devices.
+     */
+    static byte[] apnonceFor(String generator, long chipId) {
+        String hex = generator.startsWith("0x") ? generator.substring(2) : generator;
+        byte[] generatorBytes = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(Long.parseUnsignedLong(hex, 16)).array();
+        try {
+            var digest = MessageDigest.getInstance(apnonceLength(chipId) == 32 ? "SHA-384" : "SHA-1");
+            return Arrays.copyOf(digest.digest(generatorBytes), apnonceLength(chipId));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int apnonceLength(long chipId) {
+        return chipId >= 0x8020 ? 32 : 20;
+    }
+}
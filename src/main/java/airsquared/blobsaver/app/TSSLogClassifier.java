@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Classifies tsschecker's output line by line while it is running, so that tsschecker can be stopped as soon as the
+ * outcome is known. Only the last {@value #tailLines} lines are kept, for error reports.
+ * <p>
+ * All markers are found in a single pass over each line with a shared {@link MultiPatternMatcher}.
+ */
+final class TSSLogClassifier {
+
+    /**
+     * Messages printed by tsschecker that blobsaver looks for
+     */
+    enum Marker {
+        SAVED("Saved shsh blobs", true),
+        INVALID_ECID("[Error] [TSSC] manually specified ecid=", true),
+        INVALID_APNONCE("[Error] [TSSC] manually specified ApNonce=", true),
+        APNONCE_LENGTH("[Error] [TSSR] parsed APNoncelen != requiredAPNoncelen", true),
+        NO_ERASE_IDENTITY("could not get BuildIdentity for installType=Erase", false),
+        NO_UPDATE_IDENTITY("could not get BuildIdentity for installType=Update", false),
+        TSS_STATUS_FAILED("checking tss status failed", false),
+        RESOLVE_HOST("Could not resolve host", false),
+        CANT_SAVE("can't save shsh at", true),
+        NOT_SIGNED("IS NOT being signed", true),
+        MANIFEST_LOAD_FAILED("failed to load manifest", true),
+        DEVICE_MISMATCH("selected device can't be used with that buildmanifest", true);
+
+        final String text;
+        /**
+         * Whether tsschecker has nothing more of interest to print after this message
+         */
+        final boolean isFinal;
+
+        Marker(String text, boolean isFinal) {
+            this.text = text;
+            this.isFinal = isFinal;
+        }
+    }
+
+    /**
+     * The outcome of a tsschecker run, in the order they are checked
+     */
+    enum Verdict {
+        SUCCESS, INVALID_ECID, INVALID_APNONCE, INVALID_BOARD_CONFIG, NO_CONNECTION, INVALID_SAVE_PATH, NOT_SIGNED,
+        MANIFEST_LOAD_FAILED, DEVICE_MISMATCH,
+        /**
+         * The TSS server returned an error, which is usually temporary
+         */
+        TSS_STATUS_FAILED,
+        UNKNOWN
+    }
+
+    private static final MultiPatternMatcher matcher =
+            new MultiPatternMatcher(Arrays.stream(Marker.values()).map(m -> m.text).toList());
+    private static final BitSet finalMarkers = new BitSet();
+
+    static {
+        for (Marker marker : Marker.values()) {
+            if (marker.isFinal) {
+                finalMarkers.set(marker.ordinal());
+            }
+        }
+    }
+
+    private static final int tailLines = 200;
+
+    private final BitSet found = new BitSet(Marker.values().length);
+    private final ArrayDeque<String> tail = new ArrayDeque<>(tailLines);
+
+    /**
+     * Classifies a complete log at once.
+     */
+    static Verdict classify(String log) {
+        var classifier = new TSSLogClassifier();
+        matcher.findAll(log, classifier.found);
+        return classifier.verdict();
+    }
+
+    /**
+     * @return true if the outcome is known and tsschecker can be stopped
+     */
+    boolean accept(String line) {
+        if (tail.size() == tailLines) {
+            tail.removeFirst();
+        }
+        tail.addLast(line);
+        matcher.findAll(line, found);
+        return found.intersects(finalMarkers);
+    }
+
+    boolean has(Marker marker) {
+        return found.get(marker.ordinal());
+    }
+
+    Verdict verdict() {
+        if (has(Marker.SAVED)) {
+            return Verdict.SUCCESS;
+        } else if (has(Marker.INVALID_ECID)) {
+            return Verdict.INVALID_ECID;
+        } else if (has(Marker.INVALID_APNONCE) || has(Marker.APNONCE_LENGTH)) {
+            return Verdict.INVALID_APNONCE;
+        } else if (has(Marker.NO_ERASE_IDENTITY) && has(Marker.NO_UPDATE_IDENTITY) && has(Marker.TSS_STATUS_FAILED)) {
+            return Verdict.INVALID_BOARD_CONFIG;
+        } else if (has(Marker.RESOLVE_HOST)) {
+            return Verdict.NO_CONNECTION;
+        } else if (has(Marker.CANT_SAVE)) {
+            return Verdict.INVALID_SAVE_PATH;
+        } else if (has(Marker.NOT_SIGNED)) {
+            return Verdict.NOT_SIGNED;
+        } else if (has(Marker.MANIFEST_LOAD_FAILED)) {
+            return Verdict.MANIFEST_LOAD_FAILED;
+        } else if (has(Marker.DEVICE_MISMATCH)) {
+            return Verdict.DEVICE_MISMATCH;
+        } else if (has(Marker.TSS_STATUS_FAILED)) {
+            return Verdict.TSS_STATUS_FAILED;
+        }
+        return Verdict.UNKNOWN;
+    }
+
+    /**
+     * @return the last lines of the log
+     */
+    String log() {
+        return String.join("\n", tail);
+    }
+}
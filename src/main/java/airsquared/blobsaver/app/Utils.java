@@ -18,8 +18,8 @@
 
 package airsquared.blobsaver.app;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
 import com.sun.jna.Platform;
 import javafx.scene.Node;
 import javafx.scene.control.*;
@@ -32,6 +32,7 @@ import javafx.stage.Window;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
@@ -43,12 +44,18 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -147,6 +154,24 @@ final class Utils {
         return tsschecker;
     }
 
+    /**
+     * @return the directory to store cached files in, which may not exist yet
+     */
+    static Path getCacheDirectory() {
+        if (Platform.isMac()) {
+            return Path.of(System.getProperty("user.home"), "Library/Caches/airsquared.blobsaver.app");
+        } else if (Platform.isWindows()) {
+            String localAppData = defIfNull(System.getenv("LOCALAPPDATA"), System.getProperty("user.home") + "\\AppData\\Local");
+            return Path.of(localAppData, "airsquared", "blobsaver", "Cache");
+        } else {
+            String cacheHome = System.getenv("XDG_CACHE_HOME");
+            if (cacheHome == null) {
+                cacheHome = System.getProperty("user.home") + "/.cache";
+            }
+            return Path.of(cacheHome, "blobsaver");
+        }
+    }
+
     static File getBlobsaverExecutable() {
         if (blobsaverExecutable != null) return blobsaverExecutable;
 
@@ -228,6 +253,53 @@ final class Utils {
         }
     }
 
+    /**
+     * Runs the program and passes each line of its output to {@code lineHandler} as soon as it is printed.
+     * If the handler returns true, the program is stopped without waiting for the rest of its output.
+     * <p>
+     * If the deadline passes or the calling thread is interrupted, the program and all of its child processes
+     * are killed.
+     *
+     * @throws TimeoutException if the program did not exit before the deadline
+     */
+    static void executeProgram(List<String> command, Predicate<String> lineHandler, Instant deadline) throws IOException, InterruptedException, TimeoutException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        // read the output on another thread, since reading can't be interrupted
+        Thread output = Thread.ofVirtual().start(() -> {
+            try (var reader = process.inputReader()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    System.out.println(line);
+                    if (lineHandler.test(line)) {
+                        process.destroy();
+                        return;
+                    }
+                }
+            } catch (IOException e) { // the stream is closed when the process is killed
+                if (process.isAlive()) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        try {
+            long timeout = Math.max(Duration.between(Instant.now(), deadline).toMillis(), 0);
+            if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException(command.getFirst() + " did not finish before the deadline");
+            }
+            output.join();
+        } finally {
+            if (process.isAlive()) {
+                destroyProcessTree(process);
+            }
+        }
+    }
+
+    private static void destroyProcessTree(Process process) {
+        System.out.println("Killing " + process.info().command().orElse("process") + " (pid " + process.pid() + ")");
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
     static void reportError(Alert alert) {
         if (alert.getResult().equals(githubIssue)) {
             newGithubIssue();
@@ -356,17 +428,11 @@ final class Utils {
     }
 
     static Stream<IOSVersion> getFirmwareList(String deviceIdentifier) throws IOException {
-        String url = "https://api.ipsw.me/v4/device/" + deviceIdentifier;
-        try {
-            return createVersionStream(Network.makeJsonRequest(url).getAsJsonObject().getAsJsonArray("firmwares"));
-        } catch (IOException e) {
-            try {
-                return getBetaHubList(deviceIdentifier, false);
-            } catch (Exception ex) {
-                e.addSuppressed(ex);
-                throw e;
-            }
-        }
+        return getFirmwareList(deviceIdentifier, false);
+    }
+
+    private static Stream<IOSVersion> getFirmwareList(String deviceIdentifier, boolean signedOnly) throws IOException {
+        return FirmwareCatalogProvider.standard().firmwares(deviceIdentifier, signedOnly).stream();
     }
 
     static Stream<IOSVersion> getBetaList(String deviceIdentifier) throws IOException {
@@ -376,7 +442,7 @@ final class Utils {
     static Stream<IOSVersion> getBetaHubList(String deviceIdentifier, boolean betas) throws IOException {
         String url = "https://www.betahub.cn/api/apple/firmwares/" + deviceIdentifier + "?type=" + (betas ? 2 : 1);
 
-        JsonElement response = Network.makeJsonRequest(url);
+        JsonElement response = Network.makeCachedJsonRequest(url);
         try {
             var firmwares = response.getAsJsonObject().getAsJsonArray("firmwares");
             return StreamSupport.stream(firmwares.spliterator(), false)
@@ -387,14 +453,50 @@ final class Utils {
         }
     }
 
-    private static Stream<IOSVersion> createVersionStream(JsonArray array) {
-        return StreamSupport.stream(array.spliterator(), false)
-                .map(JsonElement::getAsJsonObject)
-                .map(o -> new IOSVersion(o.get("version").getAsString(), o.get("buildid").getAsString(), o.get("url").getAsString(), o.get("signed").getAsBoolean()));
+    /**
+     * Reads the {@code firmwares} array of an ipsw.me device response as it is parsed, without building a tree.
+     * Fields that aren't needed are skipped.
+     *
+     * @param signedOnly whether to leave out versions that aren't being signed
+     */
+    static List<IOSVersion> readFirmwares(JsonReader reader, boolean signedOnly) throws IOException {
+        var versions = new ArrayList<IOSVersion>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("firmwares")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String version = null, buildid = null, url = null;
+                Boolean signed = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "version" -> version = reader.nextString();
+                        case "buildid" -> buildid = reader.nextString();
+                        case "url" -> url = reader.nextString();
+                        case "signed" -> signed = reader.nextBoolean();
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (version == null || buildid == null || url == null || signed == null) {
+                    throw new NoSuchElementException("Unable to extract iOS Versions from JSON at " + reader.getPath());
+                }
+                if (signed || !signedOnly) {
+                    versions.add(new IOSVersion(version, buildid, url, signed));
+                }
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return versions;
     }
 
     static Stream<IOSVersion> getSignedFirmwares(String deviceIdentifier) throws IOException {
-        return getFirmwareList(deviceIdentifier).filter(IOSVersion::signed);
+        return getFirmwareList(deviceIdentifier, true);
     }
 
     static Stream<IOSVersion> getSignedBetas(String deviceIdentifier) throws IOException {
@@ -411,35 +513,51 @@ final class Utils {
     static Path extractBuildManifest(String ipswUrl) throws IOException {
         Path buildManifest = Files.createTempFile("BuildManifest", ".plist");
         buildManifest.toFile().deleteOnExit();
+        extractBuildManifest(ipswUrl, buildManifest);
+        return buildManifest.toRealPath();
+    }
+
+    // assumes that ipswUrl has been checked with `new URI(ipswUrl)`
+    static void extractBuildManifest(String ipswUrl, Path buildManifest) throws IOException {
         if (ipswUrl.matches("https?://.*apple.*\\.ipsw")) {
             var fileName = Path.of(URI.create(ipswUrl).getPath()).getFileName().toString();
             var manifestURL = ipswUrl.replace(fileName, "BuildManifest.plist");
             try {
-                return Network.downloadFile(manifestURL, buildManifest).body().toRealPath();
+                Network.downloadFile(manifestURL, buildManifest);
+                return;
             } catch (Exception e) {
                 e.printStackTrace();
             }
         } else if (ipswUrl.startsWith("file:") && ipswUrl.endsWith(".plist")) {
             Files.copy(Path.of(URI.create(ipswUrl)), buildManifest, StandardCopyOption.REPLACE_EXISTING);
-            return buildManifest.toRealPath();
+            return;
         } else if (ipswUrl.endsWith(".plist")) {
             try {
-                buildManifest = Network.downloadFile(ipswUrl, buildManifest).body().toRealPath();
+                Network.downloadFile(ipswUrl, buildManifest);
                 System.out.println("Directly downloaded to " + buildManifest);
-                return buildManifest;
+                return;
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
         }
         extractManifestFromZip(ipswUrl, buildManifest);
         System.out.println("Extracted to " + buildManifest);
-        return buildManifest.toRealPath();
     }
 
     private static void extractManifestFromZip(String ipswUrl, Path extractTo) throws IOException {
+        try (ZipReader.RangeSource source = ipswUrl.startsWith("file:")
+                ? new ZipReader.MappedFileSource(Path.of(URI.create(ipswUrl)))
+                : new Network.HttpRangeSource(URI.create(ipswUrl))) {
+            ZipReader.extract(source, "BuildManifest.plist", extractTo);
+            return;
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            System.err.println("Unable to read BuildManifest.plist directly, falling back to reading the zip: " + e);
+        }
         SeekableByteChannel channel = ipswUrl.startsWith("file:")
                 ? Files.newByteChannel(Path.of(URI.create(ipswUrl)), StandardOpenOption.READ)
-                : new Network.HttpChannel(URI.create(ipswUrl).toURL());
+                : new Network.HttpChannel(URI.create(ipswUrl));
         try (channel; var ipsw = new ZipFile(channel, "ipsw", "UTF8", true, true);
              var stream = ipsw.getInputStream(ipsw.getEntry("BuildManifest.plist"))) {
             Files.copy(stream, extractTo, StandardCopyOption.REPLACE_EXISTING);
@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Extracts a single entry from a zip archive using only ranged reads, without reading the rest of the archive.
+ * <p>
+ * The end of the archive is read first, which holds the end of central directory record (and the Zip64 records, if
+ * any) and usually the whole central directory. Then only the entry's local header and data are read. For a remote
+ * IPSW, that is three small requests, each for exactly the bytes that are needed.
+ */
+final class ZipReader {
+
+    /**
+     * Random access to the bytes of an archive
+     */
+    interface RangeSource extends Closeable {
+        /**
+         * @return the last {@code length} bytes of the archive, or all of it if it is shorter
+         */
+        ByteBuffer tail(int length) throws IOException;
+
+        /**
+         * Only valid after {@link #tail(int)} has been called
+         */
+        long size();
+
+        /**
+         * @return a stream of the bytes from {@code offset} to {@code offset + length}
+         */
+        InputStream open(long offset, long length) throws IOException;
+
+        /**
+         * @return the bytes from {@code offset} to {@code offset + length} if they can be accessed without copying
+         * them, or null to use {@link #open(long, long)} instead
+         */
+        default ByteBuffer map(long offset, long length) throws IOException {
+            return null;
+        }
+    }
+
+    /**
+     * Memory-maps the regions of a local archive that are read, so that entries are inflated straight from the page
+     * cache. Only the end of the archive and the entry are mapped, so this works for archives of any size.
+     */
+    static final class MappedFileSource implements RangeSource {
+
+        private final FileChannel channel;
+        private final long size;
+
+        MappedFileSource(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+        }
+
+        @Override
+        public ByteBuffer tail(int length) throws IOException {
+            long start = Math.max(0, size - length);
+            return map(start, size - start);
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public InputStream open(long offset, long length) throws IOException {
+            return new BufferInputStream(map(offset, length));
+        }
+
+        @Override
+        public ByteBuffer map(long offset, long length) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close(); // the mappings stay valid until they are garbage collected
+        }
+    }
+
+    /**
+     * How much of the end of the archive to read at first. It's enough for the end of central directory record with
+     * the longest comment, and for the central directory of typical IPSWs.
+     */
+    static final int tailLength = 256 * 1024;
+
+    private static final int eocdSignature = 0x06054b50;
+    private static final int eocdLength = 22;
+    private static final int zip64LocatorSignature = 0x07064b50;
+    private static final int zip64LocatorLength = 20;
+    private static final int zip64EocdSignature = 0x06064b50;
+    private static final int centralHeaderSignature = 0x02014b50;
+    private static final int localHeaderSignature = 0x04034b50;
+    private static final int localHeaderLength = 30;
+    private static final long zip64Marker = 0xFFFFFFFFL;
+
+    private record Entry(int method, long compressedSize, long localHeaderOffset) {
+    }
+
+    private ZipReader() {
+    }
+
+    /**
+     * Copies the entry's uncompressed contents to {@code destination}, replacing it if it exists.
+     *
+     * @throws FileNotFoundException if the archive has no entry with that name
+     */
+    static void extract(RangeSource source, String entryName, Path destination) throws IOException {
+        try (var stream = open(source, entryName)) {
+            Files.copy(stream, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return a stream of the entry's uncompressed contents, inflated as it is read
+     * @throws FileNotFoundException if the archive has no entry with that name
+     */
+    static InputStream open(RangeSource source, String entryName) throws IOException {
+        Entry entry = findEntry(source, entryName);
+        if (entry.compressedSize() < 0 || entry.localHeaderOffset() < 0
+                || entry.compressedSize() > source.size() - localHeaderLength - entry.localHeaderOffset()) {
+            throw new ZipException("Entry " + entryName + " is outside of the archive");
+        }
+
+        // the local header's extra field can differ from the central directory's, so its length isn't known yet
+        long length = Math.min(source.size() - entry.localHeaderOffset(),
+                localHeaderLength + 0xFFFF + 0xFFFF + entry.compressedSize());
+        ByteBuffer mapped = length <= Integer.MAX_VALUE ? source.map(entry.localHeaderOffset(), length) : null;
+        if (mapped != null) {
+            return openMapped(mapped.order(ByteOrder.LITTLE_ENDIAN), entry, entryName);
+        }
+
+        // otherwise, read the local header first so that exactly the entry's data can be requested
+        ByteBuffer header;
+        try (var stream = source.open(entry.localHeaderOffset(), localHeaderLength)) {
+            header = ByteBuffer.wrap(stream.readNBytes(localHeaderLength)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (header.remaining() < localHeaderLength || header.getInt(0) != localHeaderSignature) {
+            throw new ZipException("Invalid local file header for " + entryName);
+        }
+        long dataOffset = entry.localHeaderOffset() + localHeaderLength
+                + Short.toUnsignedInt(header.getShort(26)) + Short.toUnsignedInt(header.getShort(28));
+        if (entry.compressedSize() > source.size() - dataOffset) {
+            throw new ZipException("Entry " + entryName + " is truncated");
+        }
+        if (entry.compressedSize() == 0) {
+            return InputStream.nullInputStream();
+        }
+        InputStream stream = source.open(dataOffset, entry.compressedSize());
+        try {
+            InputStream data = new BoundedInputStream(stream, entry.compressedSize());
+            return switch (entry.method()) {
+                case 0 -> data;
+                case 8 -> new InflaterInputStream(data, new Inflater(true), 64 * 1024) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inf.end();
+                    }
+                };
+                default -> throw new ZipException("Unsupported compression method " + entry.method() + " for " + entryName);
+            };
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    private static InputStream openMapped(ByteBuffer mapped, Entry entry, String entryName) throws ZipException {
+        if (mapped.limit() < localHeaderLength || mapped.getInt(0) != localHeaderSignature) {
+            throw new ZipException("Invalid local file header for " + entryName);
+        }
+        int dataOffset = localHeaderLength + Short.toUnsignedInt(mapped.getShort(26)) + Short.toUnsignedInt(mapped.getShort(28));
+        if (dataOffset + entry.compressedSize() > mapped.limit()) {
+            throw new ZipException("Entry " + entryName + " is truncated");
+        }
+        ByteBuffer data = mapped.slice(dataOffset, (int) entry.compressedSize());
+        return switch (entry.method()) {
+            case 0 -> new BufferInputStream(data);
+            case 8 -> new BufferInflaterInputStream(data);
+            default -> throw new ZipException("Unsupported compression method " + entry.method() + " for " + entryName);
+        };
+    }
+
+    private static Entry findEntry(RangeSource source, String entryName) throws IOException {
+        ByteBuffer tail = source.tail(tailLength).order(ByteOrder.LITTLE_ENDIAN);
+        long tailOffset = source.size() - tail.limit();
+
+        int eocd = tail.limit() - eocdLength;
+        while (eocd >= 0 && tail.getInt(eocd) != eocdSignature) {
+            eocd--;
+        }
+        if (eocd < 0) {
+            throw new ZipException("End of central directory not found");
+        }
+        long entries = Short.toUnsignedLong(tail.getShort(eocd + 10));
+        long cdSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+        long cdOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+
+        long cdEnd = tailOffset + eocd;
+        int locator = eocd - zip64LocatorLength;
+        if (locator >= 0 && tail.getInt(locator) == zip64LocatorSignature) {
+            long zip64Eocd = tail.getLong(locator + 8) - tailOffset;
+            if (zip64Eocd < 0 || zip64Eocd > locator - 56 || tail.getInt((int) zip64Eocd) != zip64EocdSignature) {
+                throw new ZipException("Zip64 end of central directory not found");
+            }
+            entries = tail.getLong((int) zip64Eocd + 32);
+            cdSize = tail.getLong((int) zip64Eocd + 40);
+            cdOffset = tail.getLong((int) zip64Eocd + 48);
+            cdEnd = tailOffset + zip64Eocd;
+        }
+        if (cdOffset < 0 || cdSize < 0 || cdSize > Integer.MAX_VALUE || cdOffset > cdEnd - cdSize) {
+            throw new ZipException("Invalid central directory offset " + cdOffset + " or size " + cdSize);
+        }
+
+        ByteBuffer cd;
+        if (cdOffset >= tailOffset) {
+            cd = tail.slice((int) (cdOffset - tailOffset), (int) cdSize).order(ByteOrder.LITTLE_ENDIAN);
+        } else { // only for archives with huge central directories
+            try (var stream = source.open(cdOffset, cdSize)) {
+                byte[] bytes = stream.readNBytes((int) cdSize);
+                if (bytes.length < cdSize) {
+                    throw new EOFException("Central directory is truncated");
+                }
+                cd = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        int pos = 0;
+        for (long i = 0; i < entries; i++) {
+            if (pos + 46 > cd.limit() || cd.getInt(pos) != centralHeaderSignature) {
+                throw new ZipException("Invalid central directory header at " + (cdOffset + pos));
+            }
+            int nameLength = Short.toUnsignedInt(cd.getShort(pos + 28));
+            int extraLength = Short.toUnsignedInt(cd.getShort(pos + 30));
+            int commentLength = Short.toUnsignedInt(cd.getShort(pos + 32));
+            if (pos + 46 + nameLength + extraLength + commentLength > cd.limit()) {
+                throw new ZipException("Central directory header at " + (cdOffset + pos) + " is truncated");
+            }
+            if (nameLength == name.length && cd.slice(pos + 46, nameLength).equals(ByteBuffer.wrap(name))) {
+                return readEntry(cd, pos, pos + 46 + nameLength, extraLength);
+            }
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        throw new FileNotFoundException(entryName + " not found in archive");
+    }
+
+    private static Entry readEntry(ByteBuffer cd, int header, int extra, int extraLength) throws ZipException {
+        int method = Short.toUnsignedInt(cd.getShort(header + 10));
+        long compressedSize = Integer.toUnsignedLong(cd.getInt(header + 20));
+        long uncompressedSize = Integer.toUnsignedLong(cd.getInt(header + 24));
+        long localHeaderOffset = Integer.toUnsignedLong(cd.getInt(header + 42));
+        if (compressedSize == zip64Marker || uncompressedSize == zip64Marker || localHeaderOffset == zip64Marker) {
+            // the Zip64 extra field only holds the values that didn't fit, in this order
+            int pos = extra;
+            while (pos + 4 <= extra + extraLength && Short.toUnsignedInt(cd.getShort(pos)) != 0x0001) {
+                pos += 4 + Short.toUnsignedInt(cd.getShort(pos + 2));
+            }
+            if (pos + 4 > extra + extraLength) {
+                throw new ZipException("Zip64 extra field not found");
+            }
+            int fieldEnd = pos + 4 + Short.toUnsignedInt(cd.getShort(pos + 2));
+            if (fieldEnd > extra + extraLength) {
+                throw new ZipException("Zip64 extra field is truncated");
+            }
+            pos += 4;
+            if (pos + ((uncompressedSize == zip64Marker ? 1 : 0) + (compressedSize == zip64Marker ? 1 : 0)
+                    + (localHeaderOffset == zip64Marker ? 1 : 0)) * 8 > fieldEnd) {
+                throw new ZipException("Zip64 extra field is too short");
+            }
+            if (uncompressedSize == zip64Marker) {
+                uncompressedSize = cd.getLong(pos);
+                pos += 8;
+            }
+            if (compressedSize == zip64Marker) {
+                compressedSize = cd.getLong(pos);
+                pos += 8;
+            }
+            if (localHeaderOffset == zip64Marker) {
+                localHeaderOffset = cd.getLong(pos);
+            }
+        }
+        return new Entry(method, compressedSize, localHeaderOffset);
+    }
+
+    /**
+     * Reads at most {@code remaining} bytes from the stream, so that inflating doesn't read past the entry.
+     */
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long remaining) {
+            this.in = in;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Entry is truncated");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Entry is truncated");
+            }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? Byte.toUnsignedInt(buffer.get()) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return len == 0 ? 0 : -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Inflates a buffer that holds the whole compressed entry, without copying it into an intermediate array first.
+     */
+    private static final class BufferInflaterInputStream extends InputStream {
+        private final Inflater inflater = new Inflater(true);
+
+        BufferInflaterInputStream(ByteBuffer compressed) {
+            inflater.setInput(compressed);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : Byte.toUnsignedInt(b[0]);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                int n;
+                while ((n = inflater.inflate(b, off, len)) == 0) {
+                    if (inflater.finished()) {
+                        return -1;
+                    } else if (inflater.needsInput() || inflater.needsDictionary()) {
+                        throw new EOFException("Entry is truncated");
+                    }
+                }
+                return n;
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+    }
+}
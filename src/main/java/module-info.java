@@ -1,6 +1,7 @@
 open module airsquared.blobsaver {
     requires java.prefs;
     requires java.net.http;
+    requires java.xml;
     requires javafx.controls;
     requires javafx.fxml;
     requires jdk.crypto.ec; // needed for ssl support in jlink'd image
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlobIndexTest extends BlobsaverTest {
+
+    @Test
+    public void parseFileName() {
+        var key = new BlobIndex.Key(1234, "iPhone12,8", "d79ap", "13.4", "17E255", "abcd");
+        assertEquals("1234_iPhone12,8_d79ap_13.4-17E255_abcd.shsh2", key.fileName());
+        assertEquals(key, BlobIndex.Key.parse(key.fileName()));
+        assertNull(BlobIndex.Key.parse("notes.txt"));
+        assertNull(BlobIndex.Key.parse("1234_iPhone12,8_d79ap_13.4-17E255.shsh2"));
+    }
+
+    @Test
+    public void scansDirectory(@TempDir Path savePath) throws IOException {
+        var saved = new BlobIndex.Key(1234, "iPhone12,8", "d79ap", "13.4", "17E255", "abcd");
+        var notSaved = new BlobIndex.Key(1234, "iPhone12,8", "d79ap", "13.4.1", "17E262", "abcd");
+        Files.createFile(savePath.resolve(saved.fileName()));
+
+        var index = BlobIndex.of(savePath);
+        assertSame(index, BlobIndex.of(savePath));
+        assertTrue(index.contains(saved));
+        assertFalse(index.contains(notSaved));
+        index.add(notSaved);
+        assertTrue(index.contains(notSaved));
+    }
+
+    @Test
+    public void matchesFileSystemCase(@TempDir Path savePath) throws IOException {
+        var saved = new BlobIndex.Key(1234, "iPhone12,8", "D79AP", "13.4", "17E255", "ABCD");
+        var otherCase = new BlobIndex.Key(1234, "iPhone12,8", "d79ap", "13.4", "17E255", "abcd");
+        Files.createFile(savePath.resolve(saved.fileName()));
+
+        // true on case-insensitive file systems like the defaults on macOS and Windows
+        assertEquals(Files.exists(savePath.resolve(otherCase.fileName())), BlobIndex.of(savePath).contains(otherCase));
+    }
+
+    @Test
+    public void remembersFileSystemMatch(@TempDir Path parent) throws IOException {
+        var key = new BlobIndex.Key(1234, "iPhone12,8", "d79ap", "13.4", "17E255", "abcd");
+        Path savePath = parent.resolve("blobs");
+        var index = BlobIndex.of(savePath); // not scanned or watched, since the directory doesn't exist yet
+        Files.createDirectory(savePath);
+        Files.createFile(savePath.resolve(key.fileName()));
+
+        assertTrue(index.contains(key));
+        Files.delete(savePath.resolve(key.fileName()));
+        assertTrue(index.contains(key), "the file system should only be checked once");
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FirmwareCatalogProviderTest extends BlobsaverTest {
+
+    private static final Utils.IOSVersion v13_4 = new Utils.IOSVersion("13.4", "17E255", "http://example.com/13.4.ipsw", true);
+    private static final Utils.IOSVersion v13_5 = new Utils.IOSVersion("13.5", "17F75", "http://example.com/13.5.ipsw", true);
+
+    @Test
+    public void hedgesSlowProvider() throws Exception {
+        var interrupted = new CountDownLatch(1);
+        FirmwareCatalogProvider slow = (_, _) -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new IOException(e);
+            }
+            return List.of(v13_5);
+        };
+        var hedged = new FirmwareCatalogProvider.Hedged(List.of(slow, (_, _) -> List.of(v13_4)), Duration.ofMillis(100));
+
+        var start = Instant.now();
+        assertEquals(List.of(v13_4), hedged.firmwares("iPhone12,8", true));
+        assertTrue(Duration.between(start, Instant.now()).toSeconds() < 5, "did not wait for the slow provider");
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "the slow provider should be cancelled");
+    }
+
+    @Test
+    public void cancelledLoserDoesNotFailSharedLoad() throws Exception {
+        var shared = new SingleFlight<String, List<Utils.IOSVersion>>();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        SingleFlight.Loader<List<Utils.IOSVersion>> load = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return List.of(v13_5);
+        };
+        var answer = new CountDownLatch(1);
+        FirmwareCatalogProvider fast = (_, _) -> {
+            try {
+                answer.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return List.of(v13_4);
+        };
+        var hedged = new FirmwareCatalogProvider.Hedged(List.of((_, _) -> shared.get("iPhone12,8", load), fast), Duration.ofMillis(100));
+        var hedgedResult = CompletableFuture.supplyAsync(() -> {
+            try {
+                return hedged.firmwares("iPhone12,8", true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // another caller waits for the load that the hedge's slow provider started
+        var otherResult = new CompletableFuture<List<Utils.IOSVersion>>();
+        var other = Thread.ofPlatform().start(() -> {
+            try {
+                otherResult.complete(shared.get("iPhone12,8", load));
+            } catch (Throwable e) {
+                otherResult.completeExceptionally(e);
+            }
+        });
+        while (other.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        answer.countDown();
+        assertEquals(List.of(v13_4), hedgedResult.get(10, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals(List.of(v13_5), otherResult.get(10, TimeUnit.SECONDS), "the other caller didn't ask to cancel");
+    }
+
+    @Test
+    public void mergesByBuildID() throws IOException {
+        var renamed = new Utils.IOSVersion("13.4 (other provider)", "17E255", "http://example.com/other.ipsw", true);
+        FirmwareCatalogProvider failing = (_, _) -> {
+            throw new IOException("HTTP Response was 500");
+        };
+        var hedged = new FirmwareCatalogProvider.Hedged(List.of(failing, (_, _) -> List.of(v13_4, v13_5), (_, _) -> List.of(renamed)), Duration.ofSeconds(10));
+        // the second provider answers immediately after the first fails, and the third is never started
+        assertEquals(List.of(v13_4, v13_5), hedged.firmwares("iPhone12,8", true));
+
+        var merged = FirmwareCatalogProvider.Hedged.merge(List.of(
+                CompletableFuture.failedFuture(new IOException("HTTP Response was 500")),
+                CompletableFuture.completedFuture(List.of(v13_4)),
+                new CompletableFuture<>(), // not done yet
+                CompletableFuture.completedFuture(List.of(renamed, v13_5))));
+        assertEquals(List.of(v13_4, v13_5), merged, "earlier providers should win for the same build ID");
+
+        var allFailing = new FirmwareCatalogProvider.Hedged(List.of(failing, failing), Duration.ofSeconds(10));
+        var e = assertThrows(IOException.class, () -> allFailing.firmwares("iPhone12,8", true));
+        assertEquals("HTTP Response was 500", e.getMessage());
+        assertEquals(1, e.getSuppressed().length);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpCacheTest extends BlobsaverTest {
+
+    @Test
+    public void revalidates() throws IOException {
+        var document = new AtomicReference<>("first");
+        var status = new AtomicInteger(200);
+        List<String> ifNoneMatch = Collections.synchronizedList(new ArrayList<>());
+        var server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/catalog.json", exchange -> {
+            String etag = "\"" + document.get() + "\"";
+            String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+            ifNoneMatch.add(condition);
+            if (status.get() != 200) {
+                exchange.sendResponseHeaders(status.get(), -1);
+            } else if (etag.equals(condition)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = document.get().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/catalog.json";
+        Path body = null;
+        try {
+            body = HttpCache.get(url);
+            assertEquals("first", Files.readString(body));
+
+            assertEquals(body, HttpCache.get(url));
+            assertEquals("first", Files.readString(body));
+
+            status.set(503);
+            assertEquals("first", Files.readString(HttpCache.get(url)), "stale copy is used on server errors");
+
+            status.set(200);
+            document.set("second");
+            assertEquals("second", Files.readString(HttpCache.get(url)));
+
+            status.set(404);
+            assertThrows(IOException.class, () -> HttpCache.get(url));
+
+            assertEquals(List.of("null", "\"first\"", "\"first\"", "\"first\"", "\"second\""),
+                    ifNoneMatch.stream().map(String::valueOf).toList());
+        } finally {
+            server.stop(0);
+            if (body != null) {
+                Files.deleteIfExists(body);
+                Files.deleteIfExists(body.resolveSibling(body.getFileName().toString().replace(".json", ".properties")));
+            }
+        }
+    }
+}
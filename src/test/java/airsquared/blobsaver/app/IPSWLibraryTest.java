@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IPSWLibraryTest extends BlobsaverTest {
+
+    private static String manifest(String buildid) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <plist version="1.0">
+                <dict>
+                	<key>ProductBuildVersion</key>
+                	<string>%s</string>
+                	<key>SupportedProductTypes</key>
+                	<array>
+                		<string>iPhone12,8</string>
+                		<string>iPhone12,1</string>
+                	</array>
+                </dict>
+                </plist>
+                """.formatted(buildid);
+    }
+
+    private static void writeIPSW(Path ipsw, String buildid) throws IOException {
+        try (var zip = new ZipOutputStream(Files.newOutputStream(ipsw))) {
+            zip.putNextEntry(new ZipEntry("Restore.plist"));
+            zip.write("<plist/>".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("BuildManifest.plist"));
+            zip.write(manifest(buildid).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void findsManifestsAndIPSWs(@TempDir Path library) throws IOException {
+        Path manifest = Files.writeString(library.resolve("BuildManifest.plist"), manifest("17E255"));
+        writeIPSW(library.resolve("iPhone_4.7_P3_13.5_17F75_Restore.ipsw"), "17F75");
+        Files.writeString(library.resolve("notes.plist"), "<plist version=\"1.0\"><dict/></plist>");
+
+        assertEquals(manifest, IPSWLibrary.find(library, "iPhone12,1", "17E255"));
+        Path extracted = IPSWLibrary.find(library, "iPhone12,8", "17F75");
+        assertEquals(manifest("17F75"), Files.readString(extracted));
+        assertTrue(IPSWLibrary.contains(extracted));
+        assertEquals(extracted, IPSWLibrary.find(library, "iPhone12,1", "17F75"));
+        assertNull(IPSWLibrary.find(library, "iPhone12,8", "17G68"));
+        assertNull(IPSWLibrary.find(library, "iPhone11,8", "17E255"));
+
+        String index = Files.readString(Utils.getCacheDirectory().resolve("ipsw-library.json"));
+        assertTrue(index.contains("17F75") && index.contains("17E255"), index);
+    }
+
+    @Test
+    public void picksUpChanges(@TempDir Path library) throws IOException, InterruptedException {
+        assertNull(IPSWLibrary.find(library, "iPhone12,8", "17E255"));
+
+        Path manifest = Files.writeString(library.resolve("BuildManifest.plist"), manifest("17E255"));
+        assertEquals(manifest, awaitFind(library, "17E255", true));
+
+        Files.delete(manifest);
+        assertNull(awaitFind(library, "17E255", false));
+    }
+
+    /**
+     * Changes are found as soon as the watcher reports them, which might not be immediately
+     */
+    private static Path awaitFind(Path library, String buildid, boolean found) throws IOException, InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(30));
+        Path result;
+        while (((result = IPSWLibrary.find(library, "iPhone12,8", buildid)) != null) != found
+                && Instant.now().isBefore(deadline)) {
+            Thread.sleep(50);
+        }
+        return result;
+    }
+}
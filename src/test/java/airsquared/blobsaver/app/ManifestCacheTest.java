@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManifestCacheTest extends BlobsaverTest {
+
+    private static Path manifest(Path directory, String name, Duration lastUsed) throws IOException {
+        Path file = Files.write(directory.resolve(name + ".plist"), new byte[100]);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(lastUsed)));
+        return file;
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed(@TempDir Path directory) throws IOException {
+        Path oldest = manifest(directory, "oldest", Duration.ofHours(3));
+        Path old = manifest(directory, "old", Duration.ofHours(2));
+        Path recent = manifest(directory, "recent", Duration.ofHours(1));
+        Path temp = Files.write(directory.resolve("BuildManifest.tmp"), new byte[1000]);
+
+        ManifestCache.evict(directory, 300);
+        assertTrue(Files.exists(oldest) && Files.exists(old) && Files.exists(recent));
+
+        ManifestCache.evict(directory, 250);
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(old) && Files.exists(recent));
+
+        ManifestCache.evict(directory, 0);
+        assertFalse(Files.exists(old) || Files.exists(recent));
+        assertTrue(Files.exists(temp), "only cached manifests should be evicted");
+    }
+
+    @Test
+    public void keepsManifestsInUse(@TempDir Path directory) throws IOException {
+        Path old = manifest(directory, "old", Duration.ofHours(1));
+        Path inUse = manifest(directory, "inUse", Duration.ofMinutes(1));
+
+        ManifestCache.evict(directory, 0);
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(inUse));
+    }
+
+    @Test
+    public void slimsOncePerBoardConfig(@TempDir Path tempDir) throws IOException {
+        Path manifest = Files.writeString(tempDir.resolve("BuildManifest.plist"), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <plist version="1.0">
+                <dict>
+                	<key>BuildIdentities</key>
+                	<array>
+                		<dict><key>Info</key><dict><key>DeviceClass</key><string>d79ap</string></dict></dict>
+                		<dict><key>Info</key><dict><key>DeviceClass</key><string>d83ap</string></dict></dict>
+                	</array>
+                </dict>
+                </plist>
+                """);
+        assertSame(manifest, ManifestCache.slim(manifest, null, "d79ap"));
+        assertSame(manifest, ManifestCache.slim(manifest, "ManifestCacheTest", "n841ap"));
+
+        Path slim = ManifestCache.slim(manifest, "ManifestCacheTest", "D79AP");
+        Path otherBuild = ManifestCache.slim(manifest, "ManifestCacheTest2", "d79ap");
+        try {
+            assertTrue(ManifestCache.contains(slim));
+            assertEquals(slim, ManifestCache.slim(manifest, "ManifestCacheTest", "d79ap"));
+            assertNotEquals(slim, otherBuild);
+        } finally {
+            Files.deleteIfExists(slim);
+            Files.deleteIfExists(otherBuild);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManifestSlimmerTest extends BlobsaverTest {
+
+    private static String identity(String deviceClass, String restoreBehavior, String chipId) {
+        return """
+                <dict>
+                	<key>ApChipID</key>
+                	<string>%s</string>
+                	<key>Info</key>
+                	<dict>
+                		<key>DeviceClass</key>
+                		<string>%s</string>
+                		<key>RestoreBehavior</key>
+                		<string>%s</string>
+                	</dict>
+                	<key>Manifest</key>
+                	<dict>
+                		<key>KernelCache</key>
+                		<dict>
+                			<key>Digest</key>
+                			<data>AAEC</data>
+                		</dict>
+                	</dict>
+                </dict>
+                """.formatted(chipId, deviceClass, restoreBehavior);
+    }
+
+    //language=XML
+    private static final String buildManifest = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE plist PUBLIC "-//Apple//DTD PLIST 1.0//EN" "http://www.apple.com/DTDs/PropertyList-1.0.dtd">
+            <plist version="1.0">
+            <dict>
+            	<key>BuildIdentities</key>
+            	<array>
+            """ + identity("d83ap", "Erase", "0x8130") + identity("d79ap", "Erase", "0x8030")
+            + identity("d79ap", "Update", "0x8030") + identity("j717ap", "Erase", "0x8112") + """
+            	</array>
+            	<key>ManifestVersion</key>
+            	<integer>-1</integer>
+            	<key>ProductBuildVersion</key>
+            	<string>21A329</string>
+            	<key>ReleaseDate</key>
+            	<date>2023-09-18T17:00:00Z</date>
+            	<key>SupportedProductTypes</key>
+            	<array>
+            		<string>iPhone16,1</string>
+            		<string>iPhone12,8</string>
+            	</array>
+            </dict>
+            </plist>
+            """;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void keepsOnlyBoardConfig(@TempDir Path tempDir) throws IOException {
+        Path manifest = Files.writeString(tempDir.resolve("BuildManifest.plist"), buildManifest);
+        Path slim = tempDir.resolve("slim.plist");
+        assertTrue(ManifestSlimmer.slim(manifest, "D79AP", slim));
+
+        var slimmed = (Map<String, Object>) Plist.parse(slim);
+        var identities = (List<Map<String, Object>>) slimmed.get("BuildIdentities");
+        assertEquals(2, identities.size());
+        for (var identity : identities) {
+            assertEquals("d79ap", ((Map<String, Object>) identity.get("Info")).get("DeviceClass"));
+        }
+        assertEquals("21A329", slimmed.get("ProductBuildVersion"));
+        assertEquals(List.of("iPhone16,1", "iPhone12,8"), slimmed.get("SupportedProductTypes"));
+        assertEquals(0x8030, Plist.toLong(TSSClient.findIdentity(slimmed, "d79ap").get("ApChipID")));
+
+        // everything that is kept is copied unchanged, including the element types
+        String xml = Files.readString(slim);
+        assertTrue(xml.contains("<key>ManifestVersion</key>\n\t<integer>-1</integer>"), xml);
+        assertTrue(xml.contains("<key>ReleaseDate</key>\n\t<date>2023-09-18T17:00:00Z</date>"), xml);
+        assertTrue(xml.contains("<array>\n" + identity("d79ap", "Erase", "0x8030")
+                + identity("d79ap", "Update", "0x8030") + "\t</array>"), xml);
+    }
+
+    @Test
+    public void noMatchingIdentities(@TempDir Path tempDir) throws IOException {
+        Path manifest = Files.writeString(tempDir.resolve("BuildManifest.plist"), buildManifest);
+        assertFalse(ManifestSlimmer.slim(manifest, "n841ap", tempDir.resolve("slim.plist")));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NetworkTest extends BlobsaverTest {
+
+    private static final byte[] data = new byte[3 * 1024 * 1024 + 123];
+
+    static {
+        new Random(0).nextBytes(data);
+    }
+
+    static HttpServer serve(byte[] data, AtomicInteger requests, Set<InetSocketAddress> connections) throws IOException {
+        return serve(data, requests, connections, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Serves {@code data} at {@code /file.ipsw}, supporting single byte ranges and suffix ranges
+     *
+     * @param connections the client address of each connection used
+     * @param maxRange    the most bytes sent for a range, even if more were asked for
+     */
+    static HttpServer serve(byte[] data, AtomicInteger requests, Set<InetSocketAddress> connections, int maxRange) throws IOException {
+        var server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/file.ipsw", exchange -> {
+            requests.incrementAndGet();
+            connections.add(exchange.getRemoteAddress());
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            int start = 0, end = data.length;
+            if (range != null) {
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                if (bounds[0].isEmpty()) {
+                    start = Math.max(0, data.length - Integer.parseInt(bounds[1]));
+                } else {
+                    start = Integer.parseInt(bounds[0]);
+                    end = bounds[1].isEmpty() ? data.length : Math.min(data.length, Integer.parseInt(bounds[1]) + 1);
+                }
+                end = (int) Math.min(end, (long) start + maxRange);
+                exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + data.length);
+            }
+            exchange.sendResponseHeaders(range == null ? 200 : 206, end - start);
+            try (var body = exchange.getResponseBody()) {
+                body.write(data, start, end - start);
+            } catch (IOException e) { // the client stopped reading
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    static String url(HttpServer server) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/file.ipsw";
+    }
+
+    private static byte[] read(Network.HttpChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+        return buffer.array();
+    }
+
+    private static byte[] expected(long position, int length) {
+        return Arrays.copyOfRange(data, (int) position, (int) position + length);
+    }
+
+    @Test
+    public void httpChannelCachesBlocks() throws Exception {
+        var requests = new AtomicInteger();
+        var connections = ConcurrentHashMap.<InetSocketAddress>newKeySet();
+        var server = serve(data, requests, connections);
+        try (var channel = new Network.HttpChannel(URI.create(url(server)))) {
+            assertEquals(data.length, channel.size());
+            long end = data.length - 22;
+            assertArrayEquals(expected(end, 22), read(channel, end, 22));
+            assertArrayEquals(expected(end - 1000, 1000), read(channel, end - 1000, 1000));
+            int afterSeeks = requests.get();
+            assertArrayEquals(expected(end - 20, 20), read(channel, end - 20, 20));
+            assertEquals(afterSeeks, requests.get(), "cached blocks should not be requested again");
+
+            assertArrayEquals(expected(100_000, 500_000), read(channel, 100_000, 500_000));
+            int afterSequential = requests.get();
+            assertArrayEquals(expected(700_000, 1000), read(channel, 700_000, 1000));
+            assertEquals(afterSequential, requests.get(), "blocks read ahead should be cached");
+
+            assertEquals(-1, channel.position(data.length).read(ByteBuffer.allocate(1)));
+        } finally {
+            server.stop(0);
+        }
+        assertTrue(requests.get() <= 7, requests.get() + " requests");
+        assertEquals(1, connections.size(), "every request should reuse the keep-alive connection");
+    }
+
+    @Test
+    public void httpChannelShorterRanges() throws Exception {
+        var requests = new AtomicInteger();
+        var server = serve(data, requests, ConcurrentHashMap.newKeySet(), 100_000);
+        try (var channel = new Network.HttpChannel(URI.create(url(server)))) {
+            assertArrayEquals(expected(1000, 10), read(channel, 1000, 10));
+            assertEquals(data.length, channel.size());
+            assertArrayEquals(expected(50_000, 2_000_000), read(channel, 50_000, 2_000_000));
+            long end = data.length - 22;
+            assertArrayEquals(expected(end, 22), read(channel, end, 22));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void extractBuildManifestWithRanges(@TempDir Path tempDir) throws Exception {
+        byte[] manifest = "<plist>BuildManifest</plist>".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        var zip = new ByteArrayOutputStream();
+        try (var out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("Firmware/all_flash/big.im4p"));
+            out.write(data);
+            out.putNextEntry(new ZipEntry("BuildManifest.plist"));
+            out.write(manifest);
+            out.putNextEntry(new ZipEntry("Restore.plist"));
+            out.write(new byte[100]);
+        }
+
+        var requests = new AtomicInteger();
+        var connections = ConcurrentHashMap.<InetSocketAddress>newKeySet();
+        var server = serve(zip.toByteArray(), requests, connections);
+        Path extracted = tempDir.resolve("BuildManifest.plist");
+        try {
+            Utils.extractBuildManifest(url(server), extracted);
+        } finally {
+            server.stop(0);
+        }
+        assertArrayEquals(manifest, Files.readAllBytes(extracted));
+        assertEquals(3, requests.get());
+        assertEquals(1, connections.size(), "every request should reuse the keep-alive connection");
+    }
+}
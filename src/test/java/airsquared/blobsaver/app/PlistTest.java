@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlistTest extends BlobsaverTest {
+
+    private static Object parse(String xml) throws IOException {
+        return Plist.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void roundTripsIntegers() throws IOException {
+        String xml = Plist.toXml(Map.of("dict", parse("""
+                <plist version="1.0">
+                <dict>
+                	<key>Negative</key>
+                	<integer>-1</integer>
+                	<key>Max</key>
+                	<integer>9223372036854775807</integer>
+                	<key>Unsigned</key>
+                	<integer>18446744073709551615</integer>
+                </dict>
+                </plist>
+                """)));
+        assertTrue(xml.contains("<integer>-1</integer>"), xml);
+        assertTrue(xml.contains("<integer>18446744073709551615</integer>"), xml);
+
+        var dict = (Map<?, ?>) ((Map<?, ?>) parse(xml)).get("dict");
+        assertEquals(-1L, dict.get("Negative"));
+        assertEquals(Long.MAX_VALUE, dict.get("Max"));
+        assertEquals(new BigInteger("18446744073709551615"), dict.get("Unsigned"));
+        assertEquals(-1L, Plist.toLong(dict.get("Unsigned")));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryPolicyTest extends BlobsaverTest {
+
+    private static final Instant noDeadline = Instant.now().plus(Duration.ofDays(1));
+
+    @Test
+    public void backoff() {
+        for (int attempt = 1; attempt < 20; attempt++) {
+            var delay = RetryPolicy.delay(attempt);
+            assertFalse(delay.isNegative());
+            assertTrue(delay.compareTo(Duration.ofSeconds(30)) <= 0, delay.toString());
+            assertTrue(delay.compareTo(Duration.ofSeconds(2L << (attempt - 1))) <= 0, delay.toString());
+        }
+    }
+
+    @Test
+    public void retryLimits() {
+        var policy = new RetryPolicy(2);
+        assertNotNull(policy.retryDelay(1, noDeadline));
+        assertNull(policy.retryDelay(RetryPolicy.maxAttempts, noDeadline));
+        assertNull(policy.retryDelay(1, Instant.now().minusSeconds(1)));
+        assertNotNull(policy.retryDelay(2, noDeadline));
+        assertNull(policy.retryDelay(1, noDeadline), "retry budget should be exhausted");
+    }
+
+    @Test
+    public void circuitBreaker() {
+        var policy = new RetryPolicy(RetryPolicy.defaultRetryBudget);
+        String endpoint = "circuit-breaker.test";
+        for (int i = 0; i < 4; i++) {
+            assertTrue(policy.allowRequest(endpoint));
+            policy.onFailure(endpoint);
+        }
+        policy.onSuccess(endpoint);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(policy.allowRequest(endpoint));
+            policy.onFailure(endpoint);
+        }
+        assertFalse(policy.allowRequest(endpoint));
+        assertFalse(new RetryPolicy(RetryPolicy.defaultRetryBudget).allowRequest(endpoint), "circuit breakers are shared");
+        policy.onSuccess(endpoint);
+        assertTrue(policy.allowRequest(endpoint));
+    }
+
+    @Test
+    public void abandonedTrial() {
+        var breaker = new RetryPolicy.CircuitBreaker("abandoned-trial.test", Duration.ZERO);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+        assertTrue(breaker.allowRequest(), "trial request");
+        assertFalse(breaker.allowRequest(), "only one trial at a time");
+        breaker.onAbandoned();
+        assertTrue(breaker.allowRequest(), "an abandoned trial should let another one through");
+        breaker.onSuccess();
+        assertTrue(breaker.allowRequest());
+    }
+}
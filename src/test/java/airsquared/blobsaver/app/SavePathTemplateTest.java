@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static airsquared.blobsaver.app.SavePathTemplate.Variable.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SavePathTemplateTest extends BlobsaverTest {
+
+    @Test
+    public void render() {
+        var template = SavePathTemplate.compile("/Blobs/${DeviceModel}/${MajorVersion}/${FullVersionString}-${BuildID}");
+        var bound = template.bind(Map.of(DEVICE_MODEL, "iPhone 11"));
+        assertEquals("/Blobs/iPhone 11/${MajorVersion}/${FullVersionString}-${BuildID}", bound.toString());
+        assertEquals("/Blobs/iPhone 11/13/13.4-17E255",
+                bound.render(Map.of(MAJOR_VERSION, "13", FULL_VERSION_STRING, "13.4", BUILD_ID, "17E255")));
+        assertEquals("/Blobs/${Unterminated", SavePathTemplate.compile("/Blobs/${Unterminated").render(Map.of()));
+    }
+
+    @Test
+    public void unknownVariable() {
+        var e = assertThrows(IllegalArgumentException.class, () -> SavePathTemplate.compile("/Blobs/${deviceModel}"));
+        assertTrue(e.getMessage().contains("${deviceModel}"));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SigningMatrixTest extends BlobsaverTest {
+
+    private final String deviceIdentifier = "SigningMatrixTest" + System.nanoTime();
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private List<Utils.IOSVersion> fetch() {
+        fetches.incrementAndGet();
+        return List.of(new Utils.IOSVersion("13.4", "17E255", "https://example.com/" + fetches + ".ipsw", true));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SigningStatusCache.invalidate(deviceIdentifier);
+    }
+
+    @Test
+    public void fallsBackToCache() throws IOException, InterruptedException {
+        var versions = SigningStatusCache.get(deviceIdentifier, this::fetch);
+        var matrix = SigningMatrix.refresh(List.of());
+        assertEquals(versions, matrix.signedFirmwares(deviceIdentifier));
+        assertEquals(versions, SigningMatrix.latest().signedFirmwares(deviceIdentifier));
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void invalidatesCache() throws IOException {
+        SigningStatusCache.get(deviceIdentifier, this::fetch);
+        SigningStatusCache.get(deviceIdentifier + " betas", this::fetch);
+
+        SigningMatrix.invalidate(deviceIdentifier);
+        SigningStatusCache.get(deviceIdentifier, this::fetch);
+        SigningStatusCache.get(deviceIdentifier + " betas", this::fetch);
+        assertEquals(4, fetches.get());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SigningStatusCacheTest extends BlobsaverTest {
+
+    private static final Path file = Utils.getCacheDirectory().resolve("signing-status.json");
+
+    private final String deviceIdentifier = "SigningStatusCacheTest" + System.nanoTime();
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private List<Utils.IOSVersion> fetch() {
+        fetches.incrementAndGet();
+        return List.of(new Utils.IOSVersion("13.4", "17E255", "https://example.com/" + fetches + ".ipsw", true));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SigningStatusCache.invalidate(deviceIdentifier);
+    }
+
+    @Test
+    public void cachesUntilInvalidated() throws IOException {
+        var versions = SigningStatusCache.get(deviceIdentifier, this::fetch);
+        assertEquals(versions, SigningStatusCache.get(deviceIdentifier, this::fetch));
+        assertEquals(1, fetches.get());
+
+        SigningStatusCache.invalidate(deviceIdentifier);
+        assertNotEquals(versions, SigningStatusCache.get(deviceIdentifier, this::fetch));
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void expires() throws IOException {
+        SigningStatusCache.get(deviceIdentifier, this::fetch);
+
+        // as if another process had cached it a while ago
+        JsonObject json = JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+        long expired = Instant.now().minus(SigningStatusCache.ttl).minusSeconds(60).toEpochMilli();
+        json.getAsJsonObject(deviceIdentifier).addProperty("fetched", expired);
+        FileTime modifiedTime = Files.getLastModifiedTime(file);
+        Files.writeString(file, json.toString());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedTime.toMillis() + 1000));
+
+        SigningStatusCache.get(deviceIdentifier, this::fetch);
+        assertEquals(2, fetches.get());
+        SigningStatusCache.get(deviceIdentifier, this::fetch);
+        assertEquals(2, fetches.get());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest extends BlobsaverTest {
+
+    @Test
+    public void coalescesConcurrentLoads() throws Exception {
+        var singleFlight = new SingleFlight<String, String>();
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        int callers = 8;
+        var arrived = new CountDownLatch(callers);
+        var callerThreads = new ArrayList<Thread>();
+        var results = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < callers; i++) {
+            var result = new CompletableFuture<String>();
+            results.add(result);
+            callerThreads.add(Thread.ofPlatform().start(() -> {
+                arrived.countDown();
+                try {
+                    result.complete(singleFlight.get("key", () -> {
+                        loads.incrementAndGet();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        return "loaded";
+                    }));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }));
+        }
+        assertTrue(arrived.await(10, TimeUnit.SECONDS));
+        // every caller is waiting, either in the load or for it
+        while (!callerThreads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (var result : results) {
+            assertEquals("loaded", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+
+        assertEquals("reloaded", singleFlight.get("key", () -> "reloaded"), "finished loads should not be remembered");
+    }
+
+    @Test
+    public void loaderError() throws Exception {
+        var singleFlight = new SingleFlight<String, String>();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Thread.ofPlatform().start(() -> {
+            try {
+                singleFlight.get("key", () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    throw new AssertionError("failed");
+                });
+            } catch (IOException | AssertionError ignored) {
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        var failure = new CompletableFuture<Throwable>();
+        var waiter = Thread.ofPlatform().start(() -> {
+            try {
+                singleFlight.get("key", () -> "loaded again");
+                failure.complete(null);
+            } catch (Throwable e) {
+                failure.complete(e);
+            }
+        });
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        assertTrue(failure.get(10, TimeUnit.SECONDS) instanceof AssertionError, "the waiter should get the loader's error");
+    }
+
+    @Test
+    public void rethrowsLoaderFailure() {
+        var singleFlight = new SingleFlight<String, String>();
+        var e = assertThrows(IOException.class, () -> singleFlight.get("key", () -> {
+            throw new IOException("failed");
+        }));
+        assertEquals("failed", e.getMessage());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the requests shared between the devices of a batch, set up like {@link TSSBatch#saveAll} does
+ */
+public class TSSBatchTest extends BlobsaverTest {
+
+    private static final Utils.IOSVersion version = new Utils.IOSVersion("13.4", "17E255", "https://example.com/iPhone.ipsw", true);
+
+    private interface ManifestLoader {
+        Path load() throws IOException;
+    }
+
+    private static TSS.Sources sources(ManifestLoader loader) {
+        return new TSS.Sources() {
+            @Override
+            public Stream<Utils.IOSVersion> signedFirmwares(String deviceIdentifier) {
+                return Stream.of(version);
+            }
+
+            @Override
+            public Stream<Utils.IOSVersion> signedBetas(String deviceIdentifier) {
+                return Stream.empty();
+            }
+
+            @Override
+            public Path manifest(String deviceIdentifier, Utils.IOSVersion version) throws IOException {
+                return loader.load();
+            }
+
+            @Override
+            public void release(Path manifest) {
+            }
+        };
+    }
+
+    private static TSS device(Path savePath, TSS.Sources sources, Map<TSS.Request, CompletableFuture<TSS.Outcome>> claimedRequests, Instant deadline) {
+        return new TSS.Builder().setDevice("iPhone12,8").setEcid("1").setSavePath(savePath.toString())
+                .setSources(sources).setClaimedRequests(claimedRequests).setDeadline(deadline).setParallelism(1).build();
+    }
+
+    private static Throwable failure(CompletableFuture<String> task) {
+        var e = assertThrows(ExecutionException.class, () -> task.get(10, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    @Test
+    public void savesClaimedRequestIfOtherDeviceFails(@TempDir Path savePath) throws Exception {
+        Map<TSS.Request, CompletableFuture<TSS.Outcome>> claimedRequests = new ConcurrentHashMap<>();
+        Instant deadline = Instant.now().plus(TSS.saveTimeout);
+        var loading = new CountDownLatch(1);
+        var fail = new CountDownLatch(1);
+        var firstLoads = new AtomicInteger();
+        var secondLoads = new AtomicInteger();
+        var secondLoadedEarly = new AtomicBoolean();
+
+        TSS first = device(savePath, sources(() -> {
+            firstLoads.incrementAndGet();
+            loading.countDown();
+            try {
+                fail.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            throw new IOException("test failure");
+        }), claimedRequests, deadline);
+        TSS second = device(savePath, sources(() -> {
+            secondLoads.incrementAndGet();
+            secondLoadedEarly.compareAndSet(false, fail.getCount() > 0);
+            throw new IOException("test failure");
+        }), claimedRequests, deadline);
+
+        var firstResult = call(first);
+        if (!loading.await(10, TimeUnit.SECONDS)) {
+            throw new AssertionError("the first device didn't load the manifest", failure(firstResult));
+        }
+        var secondResult = new CompletableFuture<String>();
+        var secondThread = new Thread(() -> {
+            try {
+                secondResult.complete(second.call());
+            } catch (Throwable e) {
+                secondResult.completeExceptionally(e);
+            }
+        });
+        secondThread.start();
+        while (secondThread.getState() != Thread.State.WAITING && secondThread.isAlive()) {
+            Thread.onSpinWait();
+        }
+        fail.countDown();
+
+        assertInstanceOf(TSS.TSSException.class, failure(firstResult));
+        assertInstanceOf(TSS.TSSException.class, failure(secondResult));
+        assertEquals(1, firstLoads.get());
+        assertEquals(1, secondLoads.get(), "the second device should save it itself");
+        assertFalse(secondLoadedEarly.get(), "the second device should wait for the first");
+        assertEquals(TSS.Outcome.FAILED, claimedRequests.values().iterator().next().get());
+    }
+
+    @Test
+    public void sharesDeadline(@TempDir Path savePath) {
+        Map<TSS.Request, CompletableFuture<TSS.Outcome>> claimedRequests = new ConcurrentHashMap<>();
+        Instant deadline = Instant.now().minusSeconds(1);
+        var loads = new AtomicInteger();
+        var sources = sources(() -> {
+            loads.incrementAndGet();
+            throw new IOException("test failure");
+        });
+
+        for (TSS tss : List.of(device(savePath, sources, claimedRequests, deadline), device(savePath, sources, claimedRequests, deadline))) {
+            var e = assertThrows(TSS.TSSException.class, tss::call);
+            assertTrue(e.getMessage().contains("timed out"), e.getMessage());
+        }
+        assertEquals(0, loads.get());
+        assertEquals(TSS.Outcome.TIMED_OUT, claimedRequests.values().iterator().next().getNow(null));
+    }
+
+    private static CompletableFuture<String> call(TSS tss) {
+        var result = new CompletableFuture<String>();
+        Utils.executeInThreadPool(() -> {
+            try {
+                result.complete(tss.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TSSClientTest extends BlobsaverTest {
+
+    //language=XML
+    private static final String buildManifest = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE plist PUBLIC "-//Apple//DTD PLIST 1.0//EN" "http://www.apple.com/DTDs/PropertyList-1.0.dtd">
+            <plist version="1.0">
+            <dict>
+            	<key>BuildIdentities</key>
+            	<array>
+            		<dict>
+            			<key>ApBoardID</key>
+            			<string>0x0C</string>
+            			<key>ApChipID</key>
+            			<string>0x8030</string>
+            			<key>ApSecurityDomain</key>
+            			<string>0x01</string>
+            			<key>Info</key>
+            			<dict>
+            				<key>DeviceClass</key>
+            				<string>d79ap</string>
+            				<key>RestoreBehavior</key>
+            				<string>Erase</string>
+            			</dict>
+            			<key>Manifest</key>
+            			<dict>
+            				<key>KernelCache</key>
+            				<dict>
+            					<key>Digest</key>
+            					<data>AAEC</data>
+            					<key>Info</key>
+            					<dict>
+            						<key>RestoreRequestRules</key>
+            						<array>
+            							<dict>
+            								<key>Actions</key>
+            								<dict>
+            									<key>EPRO</key>
+            									<true/>
+            								</dict>
+            								<key>Conditions</key>
+            								<dict>
+            									<key>ApRawProductionMode</key>
+            									<true/>
+            								</dict>
+            							</dict>
+            						</array>
+            					</dict>
+            					<key>Trusted</key>
+            					<true/>
+            				</dict>
+            				<key>BasebandFirmware</key>
+            				<dict>
+            					<key>Info</key>
+            					<dict/>
+            				</dict>
+            			</dict>
+            			<key>UniqueBuildID</key>
+            			<data>3q2+7w==</data>
+            		</dict>
+            	</array>
+            	<key>ProductBuildVersion</key>
+            	<string>17E255</string>
+            	<key>ProductVersion</key>
+            	<string>13.4</string>
+            </dict>
+            </plist>
+            """;
+
+    @Test
+    public void saveBlob(@TempDir Path savePath) throws Exception {
+        var ticket = Plist.toXml(Map.of("ApImg4Ticket", new byte[]{1, 2, 3}));
+        var request = serveOnce("STATUS=0&MESSAGE=SUCCESS&REQUEST_STRING=" + ticket, endpoint -> {
+            var device = new TSSClient.Device(1, "iPhone12,8", "d79ap", null, null);
+            return new TSSClient(endpoint).save(device, parseManifest(), savePath, Duration.ofSeconds(10));
+        });
+
+        @SuppressWarnings("unchecked")
+        var sent = (Map<String, Object>) Plist.parse(new ByteArrayInputStream(request.body().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1L, sent.get("ApECID"));
+        assertEquals(0x8030L, sent.get("ApChipID"));
+        assertEquals(32, ((byte[]) sent.get("ApNonce")).length);
+        assertFalse(sent.containsKey("BasebandFirmware"));
+        @SuppressWarnings("unchecked")
+        var kernelCache = (Map<String, Object>) sent.get("KernelCache");
+        assertEquals(true, kernelCache.get("EPRO"));
+        assertFalse(kernelCache.containsKey("Info"));
+
+        Path blob = request.result();
+        assertEquals("1_iPhone12,8_d79ap_13.4-17E255.shsh2", blob.getFileName().toString());
+        @SuppressWarnings("unchecked")
+        var saved = (Map<String, Object>) Plist.parse(blob);
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) saved.get("ApImg4Ticket"));
+        assertEquals("0x1111111111111111", saved.get("generator"));
+    }
+
+    @Test
+    public void apnonceWithoutGenerator(@TempDir Path savePath) throws Exception {
+        String apnonce = "ab".repeat(32);
+        var ticket = Plist.toXml(Map.of("ApImg4Ticket", new byte[]{1, 2, 3}));
+        var request = serveOnce("STATUS=0&MESSAGE=SUCCESS&REQUEST_STRING=" + ticket, endpoint -> {
+            var device = new TSSClient.Device(1, "iPhone12,8", "d79ap", apnonce, null);
+            return new TSSClient(endpoint).save(device, parseManifest(), savePath, Duration.ofSeconds(10));
+        });
+
+        Path blob = request.result();
+        assertEquals("1_iPhone12,8_d79ap_13.4-17E255_" + apnonce + ".shsh2", blob.getFileName().toString());
+        @SuppressWarnings("unchecked")
+        var saved = (Map<String, Object>) Plist.parse(blob);
+        assertFalse(saved.containsKey("generator"), "the default generator does not produce the given APNonce");
+    }
+
+    @Test
+    public void notSigned(@TempDir Path savePath) {
+        var e = assertThrows(TSSClient.TSSServerException.class, () ->
+                serveOnce("STATUS=94&MESSAGE=This device isn't eligible for the requested build.", endpoint -> {
+                    var device = new TSSClient.Device(1, "iPhone12,8", "d79ap", null, null);
+                    return new TSSClient(endpoint).save(device, parseManifest(), savePath, Duration.ofSeconds(10));
+                }));
+        assertEquals(TSSClient.TSSServerException.NOT_SIGNED, e.status);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parseManifest() throws IOException {
+        return (Map<String, Object>) Plist.parse(new ByteArrayInputStream(buildManifest.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private interface ClientCall<T> {
+        T call(URI endpoint) throws Exception;
+    }
+
+    private record Request<T>(String body, T result) {}
+
+    /**
+     * Runs a minimal HTTP server that responds to one request with {@code responseBody}, and returns the request body
+     * along with the result of the client call.
+     */
+    private static <T> Request<T> serveOnce(String responseBody, ClientCall<T> client) throws Exception {
+        try (var server = new ServerSocket(0)) {
+            var requestBody = CompletableFuture.supplyAsync(() -> {
+                try (var socket = server.accept()) {
+                    InputStream in = socket.getInputStream();
+                    int contentLength = 0;
+                    String line;
+                    while (!(line = readLine(in)).isEmpty()) {
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+                        }
+                    }
+                    String body = new String(in.readNBytes(contentLength), StandardCharsets.UTF_8);
+                    byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+                    socket.getOutputStream().write(("HTTP/1.1 200 OK\r\nContent-Length: " + response.length
+                            + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                    socket.getOutputStream().write(response);
+                    return body;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            T result = client.call(URI.create("http://localhost:" + server.getLocalPort() + "/TSS/controller?action=2"));
+            return new Request<>(requestBody.join(), result);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        var line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import airsquared.blobsaver.app.TSSLogClassifier.Verdict;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static airsquared.blobsaver.app.Utils.containsIgnoreCase;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TSSLogClassifierTest extends BlobsaverTest {
+
+    private static final String ecid = "1234", apnonce = "abcd";
+
+    private static final List<String> endings = List.of(
+            "Saved shsh blobs!",
+            "[Error] [TSSC] manually specified ecid=" + ecid + ", but parsing failed",
+            "[Error] [TSSC] manually specified ApNonce=" + apnonce + ", but parsing failed",
+            "[Error] [TSSR] parsed APNoncelen != requiredAPNoncelen (4 != 32)",
+            "[Error] [TSSC] could not get BuildIdentity for installType=Erase\n[Error] [TSSC] could not get BuildIdentity for installType=Update\n[Error] [TSSC] checking tss status failed!",
+            "[Error] [TSSR] Could not resolve host: gs.apple.com",
+            "[Error] [TSSC] can't save shsh at /nonexistent",
+            "iOS 13.4 for device iPhone12,8 IS NOT being signed!",
+            "[Error] [TSSC] failed to load manifest",
+            "[Error] [TSSC] selected device can't be used with that buildmanifest",
+            "[Error] something else entirely");
+
+    @Test
+    public void matchesLegacyParsing() {
+        for (String ending : endings) {
+            String log = createLog(200, ending);
+            assertEquals(legacyVerdict(log), TSSLogClassifier.classify(log), ending);
+        }
+        assertEquals(Verdict.SUCCESS, TSSLogClassifier.classify(createLog(10, "SAVED SHSH BLOBS!")));
+    }
+
+    @Test
+    public void stopsAtFinalVerdict() {
+        var classifier = new TSSLogClassifier();
+        assertFalse(classifier.accept("[TSSC] checking tss status failed!"));
+        assertTrue(classifier.accept("iOS 13.4 for device iPhone12,8 IS NOT being signed!"));
+        assertEquals(Verdict.NOT_SIGNED, classifier.verdict());
+    }
+
+    @Test
+    public void multiPatternMatcher() {
+        var matcher = new MultiPatternMatcher(List.of("he", "she", "his", "hers"));
+        assertEquals("{0, 1, 3}", matcher.findAll("uSHErs").toString());
+        assertEquals("{2}", matcher.findAll("this").toString());
+        assertTrue(matcher.findAll("hé").isEmpty());
+    }
+
+    @Test
+    @Disabled("benchmark; run manually")
+    public void benchmark() {
+        var logs = endings.stream().map(ending -> createLog(2000, ending)).toList();
+        for (int round = 0; round < 5; round++) {
+            long legacy = time(logs, TSSLogClassifierTest::legacyVerdict);
+            long automaton = time(logs, TSSLogClassifier::classify);
+            System.out.printf("round %d: containsIgnoreCase %d ms, automaton %d ms%n", round, legacy / 1_000_000, automaton / 1_000_000);
+        }
+    }
+
+    private static long time(List<String> logs, Function<String, Verdict> classifier) {
+        long start = System.nanoTime();
+        for (int i = 0; i < 50; i++) {
+            for (String log : logs) {
+                assertNotNull(classifier.apply(log));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * A log of about the size tsschecker prints with verbose output, ending with {@code ending}.
+     */
+    private static String createLog(int lines, String ending) {
+        var log = new StringBuilder("""
+                Version: 304-a58e1f5d6b7fa6bdcc6b4b2a6e0d6e3e2f4d7a1c
+                [TSSC] manually specified ecid to use, parsed "1234" to dec:1234 hex:4d2
+                [TSSC] opening firmware.json
+                [TSSC] got firmwareurl for iOS 13.4 build 17E255
+                """);
+        for (int i = 0; i < lines; i++) {
+            log.append("[TSSR] tss_request_add_ap_img4_tags: component ").append(i)
+                    .append(" Digest=0x3f2a9c1d45b7e8a0 Trusted=1 EPRO=1 ESEC=1\n");
+        }
+        return log.append(ending).toString();
+    }
+
+    /**
+     * The log parsing that was used before {@link TSSLogClassifier}
+     */
+    private static Verdict legacyVerdict(String log) {
+        if (containsIgnoreCase(log, "Saved shsh blobs")) {
+            return Verdict.SUCCESS;
+        } else if (containsIgnoreCase(log, "[Error] [TSSC] manually specified ecid=" + ecid + ", but parsing failed")) {
+            return Verdict.INVALID_ECID;
+        } else if (containsIgnoreCase(log, "[Error] [TSSC] manually specified ApNonce=" + apnonce + ", but parsing failed")
+                || containsIgnoreCase(log, "[Error] [TSSR] parsed APNoncelen != requiredAPNoncelen")) {
+            return Verdict.INVALID_APNONCE;
+        } else if (containsIgnoreCase(log, "could not get BuildIdentity for installType=Erase")
+                && containsIgnoreCase(log, "could not get BuildIdentity for installType=Update")
+                && containsIgnoreCase(log, "checking tss status failed")) {
+            return Verdict.INVALID_BOARD_CONFIG;
+        } else if (containsIgnoreCase(log, "Could not resolve host")) {
+            return Verdict.NO_CONNECTION;
+        } else if (containsIgnoreCase(log, "can't save shsh at")) {
+            return Verdict.INVALID_SAVE_PATH;
+        } else if (containsIgnoreCase(log, "IS NOT being signed")) {
+            return Verdict.NOT_SIGNED;
+        } else if (containsIgnoreCase(log, "failed to load manifest")) {
+            return Verdict.MANIFEST_LOAD_FAILED;
+        } else if (containsIgnoreCase(log, "selected device can't be used with that buildmanifest")) {
+            return Verdict.DEVICE_MISMATCH;
+        }
+        return Verdict.UNKNOWN;
+    }
+}
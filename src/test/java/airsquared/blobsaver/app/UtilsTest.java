@@ -18,13 +18,19 @@
 
 package airsquared.blobsaver.app;
 
+import com.google.gson.stream.JsonReader;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,6 +50,30 @@ public class UtilsTest extends BlobsaverTest {
         }
     }
 
+    @Test
+    public void readFirmwares() throws IOException {
+        String json = """
+                {"name":"iPhone 11","identifier":"iPhone12,1","boards":[{"boardconfig":"N104AP","platform":"t8030"}],
+                 "firmwares":[
+                  {"identifier":"iPhone12,1","version":"13.4","buildid":"17E255","sha1sum":"x","md5sum":"y","filesize":5,
+                   "url":"http://example.com/13.4.ipsw","releasedate":null,"uploaddate":"2020-03-24T17:07:09Z","signed":true},
+                  {"identifier":"iPhone12,1","version":"13.3.1","buildid":"17D50","url":"http://example.com/13.3.1.ipsw","signed":false}
+                 ],"extra":{"nested":[1,2,3]}}""";
+        var all = Utils.readFirmwares(new JsonReader(new StringReader(json)), false);
+        assertEquals(List.of(new Utils.IOSVersion("13.4", "17E255", "http://example.com/13.4.ipsw", true),
+                new Utils.IOSVersion("13.3.1", "17D50", "http://example.com/13.3.1.ipsw", false)), all);
+        var signed = Utils.readFirmwares(new JsonReader(new StringReader(json)), true);
+        assertEquals(all.subList(0, 1), signed);
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void executeProgramDeadline() {
+        var start = Instant.now();
+        assertThrows(TimeoutException.class, () -> Utils.executeProgram(List.of("sleep", "30"), _ -> false, start.plusMillis(200)));
+        assertTrue(Duration.between(start, Instant.now()).toSeconds() < 10, "Program was not killed at the deadline");
+    }
+
     @Test
     @DisabledOnOs(value = OS.MAC, disabledReason = "Randomly fails in CI on macOS")
     public void checkForUpdates() throws IOException {
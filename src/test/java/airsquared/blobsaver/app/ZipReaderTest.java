@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026  airsquared
+ *
+ * This file is part of blobsaver.
+ *
+ * blobsaver is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * blobsaver is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with blobsaver.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package airsquared.blobsaver.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipReaderTest extends BlobsaverTest {
+
+    private static final byte[] manifest = "<plist>BuildManifest</plist>".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Serves a byte array, counting the reads
+     */
+    private static final class ArraySource implements ZipReader.RangeSource {
+        final byte[] data;
+        int reads;
+
+        ArraySource(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public ByteBuffer tail(int length) {
+            reads++;
+            int start = Math.max(0, data.length - length);
+            return ByteBuffer.wrap(data, start, data.length - start).slice();
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public InputStream open(long offset, long length) {
+            reads++;
+            return new ByteArrayInputStream(data, (int) offset, (int) length);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static byte[] zip(int emptyEntries, boolean stored) throws IOException {
+        var zip = new ByteArrayOutputStream();
+        try (var out = new ZipOutputStream(zip)) {
+            for (int i = 0; i < emptyEntries; i++) {
+                out.putNextEntry(new ZipEntry("Firmware/" + i));
+            }
+            var entry = new ZipEntry("BuildManifest.plist");
+            if (stored) {
+                var crc = new CRC32();
+                crc.update(manifest);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(manifest.length);
+                entry.setCrc(crc.getValue());
+            }
+            out.putNextEntry(entry);
+            out.write(manifest);
+            out.putNextEntry(new ZipEntry("Restore.plist"));
+        }
+        return zip.toByteArray();
+    }
+
+    @Test
+    public void readsEntry() throws IOException {
+        for (boolean stored : new boolean[]{false, true}) {
+            var source = new ArraySource(zip(10, stored));
+            try (var stream = ZipReader.open(source, "BuildManifest.plist")) {
+                assertArrayEquals(manifest, stream.readAllBytes());
+            }
+            assertEquals(3, source.reads); // the tail, the local header, and the data
+        }
+    }
+
+    @Test
+    public void readsZip64() throws IOException {
+        // more than 65535 entries needs Zip64, and makes the central directory larger than the tail
+        var source = new ArraySource(zip(70_000, false));
+        try (var stream = ZipReader.open(source, "BuildManifest.plist")) {
+            assertArrayEquals(manifest, stream.readAllBytes());
+        }
+        assertEquals(4, source.reads);
+    }
+
+    @Test
+    public void readsMappedFile(@TempDir Path tempDir) throws IOException {
+        for (boolean stored : new boolean[]{false, true}) {
+            Path ipsw = Files.write(tempDir.resolve("test.ipsw"), zip(10, stored));
+            Path extracted = tempDir.resolve("BuildManifest.plist");
+            try (var source = new ZipReader.MappedFileSource(ipsw)) {
+                ZipReader.extract(source, "BuildManifest.plist", extracted);
+            }
+            assertArrayEquals(manifest, Files.readAllBytes(extracted));
+        }
+    }
+
+    @Test
+    public void missingEntry() throws IOException {
+        var source = new ArraySource(zip(10, false));
+        assertThrows(FileNotFoundException.class, () -> ZipReader.open(source, "Missing.plist"));
+    }
+
+    @Test
+    public void malformedArchive() throws IOException {
+        byte[] zip = zip(10, false);
+        int eocd = zip.length - 22;
+        ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN).putInt(eocd + 16, Integer.MAX_VALUE); // central directory offset
+        assertThrows(ZipException.class, () -> ZipReader.open(new ArraySource(zip), "BuildManifest.plist"));
+
+        byte[] truncated = zip(10, false);
+        ByteBuffer.wrap(truncated).order(ByteOrder.LITTLE_ENDIAN).putShort(truncated.length - 22 + 10, (short) 1000); // entry count
+        assertThrows(ZipException.class, () -> ZipReader.open(new ArraySource(truncated), "Missing.plist"));
+    }
+}